@@ -0,0 +1,184 @@
+package ch.erzberger.sharpbasic.analysis;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineDeclaration;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Control-flow graph of a program. Its nodes are the top-level statements of all lines in file
+ * order; a line without statements, e.g. a label or a comment, has one empty node so it can be
+ * jumped to. Statements nested in an IF belong to the node of the IF.
+ * <p>
+ * Successors are stored in compressed rows: the successors of node {@code n} are
+ * {@code successors[successorStart[n]]} up to {@code successors[successorStart[n + 1]]}.
+ * Edges are:
+ * <ul>
+ *     <li>to the next node, unless the statement is GOTO, RETURN or END</li>
+ *     <li>to the target line of GOTO, GOSUB, IF ... THEN/GOTO and each target of ON ... GOTO/GOSUB</li>
+ *     <li>from IF to the next line, when the condition is false</li>
+ *     <li>from NEXT back to the statement after the matching FOR</li>
+ * </ul>
+ * A return from a subroutine is covered by the edge from GOSUB to its next node. Computed targets
+ * such as {@code GOTO A*10} have no edges; the nodes containing them are marked instead.
+ * <p>
+ * The graph is cached per file until the next PSI change.
+ */
+public final class SharpBasicControlFlow {
+    private final SharpBasicLineDeclaration[] lines;
+    private final int[] lineFirstNode;
+    private final int[] nodeLine;
+    private final PsiElement[] statements;
+    private final int[] successorStart;
+    private final int[] successors;
+    private final BitSet computedJumps;
+    private final BitSet entryLines;
+    private volatile BitSet reachable;
+
+    SharpBasicControlFlow(SharpBasicLineDeclaration[] lines, int[] lineFirstNode, int[] nodeLine,
+                          PsiElement[] statements, int[] successorStart, int[] successors,
+                          BitSet computedJumps, BitSet entryLines) {
+        this.lines = lines;
+        this.lineFirstNode = lineFirstNode;
+        this.nodeLine = nodeLine;
+        this.statements = statements;
+        this.successorStart = successorStart;
+        this.successors = successors;
+        this.computedJumps = computedJumps;
+        this.entryLines = entryLines;
+    }
+
+    /**
+     * Returns the control-flow graph of a file, cached until the file changes. Edits to other files
+     * keep it.
+     */
+    @NotNull
+    public static SharpBasicControlFlow of(@NotNull SharpBasicFile file) {
+        return CachedValuesManager.getCachedValue(file, () -> CachedValueProvider.Result.create(
+                new SharpBasicControlFlowBuilder(file).build(), file));
+    }
+
+    public int getNodeCount() {
+        return nodeLine.length;
+    }
+
+    public int getLineCount() {
+        return lines.length;
+    }
+
+    @NotNull
+    public SharpBasicLineDeclaration getLine(int line) {
+        return lines[line];
+    }
+
+    /**
+     * Returns the index of the line a node belongs to.
+     */
+    public int lineOf(int node) {
+        return nodeLine[node];
+    }
+
+    public int firstNodeOf(int line) {
+        return lineFirstNode[line];
+    }
+
+    /**
+     * Returns the index after the last node of a line.
+     */
+    public int endNodeOf(int line) {
+        return lineFirstNode[line + 1];
+    }
+
+    /**
+     * Returns the statement of a node, e.g. a goto_stmt, or null for the node of a line without statements.
+     */
+    @Nullable
+    public PsiElement getStatement(int node) {
+        return statements[node];
+    }
+
+    public int successorStart(int node) {
+        return successorStart[node];
+    }
+
+    public int successorEnd(int node) {
+        return successorStart[node + 1];
+    }
+
+    public int successorAt(int index) {
+        return successors[index];
+    }
+
+    @NotNull
+    public int[] getSuccessors(int node) {
+        return Arrays.copyOfRange(successors, successorStart[node], successorStart[node + 1]);
+    }
+
+    /**
+     * Returns whether the statement of a node may jump to a computed line number.
+     */
+    public boolean hasComputedJump(int node) {
+        return computedJumps.get(node);
+    }
+
+    /**
+     * Returns whether execution can start at a line: the first line, and labelled lines, which can
+     * be started with RUN "label" or a DEF key.
+     */
+    public boolean isEntryLine(int line) {
+        return entryLines.get(line);
+    }
+
+    /**
+     * Returns the nodes reachable from an entry line. If a reachable node has a computed jump, any
+     * line may follow it, so all nodes are reachable.
+     */
+    @NotNull
+    public BitSet getReachableNodes() {
+        BitSet result = reachable;
+        if (result == null) {
+            result = computeReachable();
+            reachable = result;
+        }
+        return result;
+    }
+
+    public boolean isReachable(int node) {
+        return getReachableNodes().get(node);
+    }
+
+    private BitSet computeReachable() {
+        int nodeCount = getNodeCount();
+        BitSet visited = new BitSet(nodeCount);
+        int[] stack = new int[nodeCount];
+        int size = 0;
+        for (int line = entryLines.nextSetBit(0); line >= 0; line = entryLines.nextSetBit(line + 1)) {
+            int node = lineFirstNode[line];
+            if (!visited.get(node)) {
+                visited.set(node);
+                stack[size++] = node;
+            }
+        }
+        while (size > 0) {
+            int node = stack[--size];
+            if (computedJumps.get(node)) {
+                visited.set(0, nodeCount);
+                return visited;
+            }
+            for (int i = successorStart[node]; i < successorStart[node + 1]; i++) {
+                int successor = successors[i];
+                if (!visited.get(successor)) {
+                    visited.set(successor);
+                    stack[size++] = successor;
+                }
+            }
+        }
+        return visited;
+    }
+}
@@ -0,0 +1,326 @@
+package ch.erzberger.sharpbasic.analysis;
+
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicJumpElement;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineDeclaration;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineNumberOwner;
+import ch.erzberger.sharpbasic.psi.SharpBasicStatementKind;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import ch.erzberger.sharpbasic.psi.impl.SharpBasicPsiImplUtil;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.IElementType;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link SharpBasicControlFlow} in two linear passes: the first numbers the nodes and the
+ * lines, the second adds the edges of each node.
+ */
+final class SharpBasicControlFlowBuilder {
+    private static final int NO_LINE = -1;
+
+    private final SharpBasicFile file;
+    private final KeywordTrie keywords;
+    private final int onId;
+    private final int gotoId;
+    private final int gosubId;
+
+    private SharpBasicLineDeclaration[] lines;
+    private int[] lineFirstNode;
+    private final IntArrayList nodeLine = new IntArrayList();
+    private final List<PsiElement> statements = new ArrayList<>();
+    private final Int2IntOpenHashMap linesByNumber = new Int2IntOpenHashMap();
+    private final Map<String, Integer> linesByLabel = new HashMap<>();
+
+    private final IntArrayList successorStart = new IntArrayList();
+    private final IntArrayList successors = new IntArrayList();
+    private final BitSet computedJumps = new BitSet();
+
+    SharpBasicControlFlowBuilder(@NotNull SharpBasicFile file) {
+        this.file = file;
+        this.keywords = KeywordTrie.forDialect(file.getDialect());
+        this.onId = keywords.idOfName("ON");
+        this.gotoId = keywords.idOfName("GOTO");
+        this.gosubId = keywords.idOfName("GOSUB");
+        linesByNumber.defaultReturnValue(NO_LINE);
+    }
+
+    @NotNull
+    SharpBasicControlFlow build() {
+        collectNodes();
+        BitSet entryLines = new BitSet(lines.length);
+        if (lines.length > 0) {
+            entryLines.set(0);
+        }
+
+        // FOR nodes that are still open, with their variable names
+        IntArrayList forNodes = new IntArrayList();
+        List<String> forVariables = new ArrayList<>();
+
+        int nodeCount = nodeLine.size();
+        for (int node = 0; node < nodeCount; node++) {
+            successorStart.add(successors.size());
+            int line = nodeLine.getInt(node);
+            int next = node + 1 < nodeCount ? node + 1 : NO_LINE;
+            int nextLine = line + 1 < lines.length ? lineFirstNode[line + 1] : NO_LINE;
+            if (lines[line].getLabel() != null) {
+                entryLines.set(line);
+            }
+
+            PsiElement statement = statements.get(node);
+            if (statement == null) {
+                addEdge(next);
+                continue;
+            }
+            IElementType type = statement.getNode().getElementType();
+            if (type == SharpBasicTypes.FOR_STMT) {
+                forNodes.add(node);
+                forVariables.add(variableOf(statement.getNode()));
+            } else if (type == SharpBasicTypes.NEXT_STMT) {
+                int loopStart = matchFor(forNodes, forVariables, variableOf(statement.getNode()));
+                if (loopStart != NO_LINE && loopStart + 1 < nodeCount) {
+                    addEdge(loopStart + 1);
+                }
+            }
+            if (type == SharpBasicTypes.IF_STMT) {
+                // The rest of the line only runs if the condition is true
+                addEdge(nextLine);
+            }
+            if (addEffect(node, statement.getNode())) {
+                addEdge(next);
+            }
+        }
+        successorStart.add(successors.size());
+
+        return new SharpBasicControlFlow(lines, lineFirstNode, nodeLine.toIntArray(),
+                statements.toArray(PsiElement.EMPTY_ARRAY), successorStart.toIntArray(), successors.toIntArray(),
+                computedJumps, entryLines);
+    }
+
+    /**
+     * Numbers the lines and their top-level statements.
+     */
+    private void collectNodes() {
+        List<SharpBasicLineDeclaration> declarations = file.getLineDeclarations();
+        lines = declarations.toArray(new SharpBasicLineDeclaration[0]);
+        lineFirstNode = new int[lines.length + 1];
+        for (int line = 0; line < lines.length; line++) {
+            SharpBasicLineDeclaration declaration = lines[line];
+            lineFirstNode[line] = nodeLine.size();
+            int number = declaration.getLineNumber();
+            if (number != SharpBasicLineNumberOwner.NO_LINE_NUMBER) {
+                linesByNumber.putIfAbsent(number, line);
+            }
+            String label = declaration.getLabel();
+            if (label != null) {
+                linesByLabel.putIfAbsent(label, line);
+            }
+
+            int before = nodeLine.size();
+            for (ASTNode list = declaration.getNode().getFirstChildNode(); list != null; list = list.getTreeNext()) {
+                if (list.getElementType() != SharpBasicTypes.STATEMENT_LIST
+                        && list.getElementType() != SharpBasicTypes.STATEMENT_LIST_NON_EMPTY) {
+                    continue;
+                }
+                for (ASTNode statement = list.getFirstChildNode(); statement != null; statement = statement.getTreeNext()) {
+                    ASTNode inner = statement.getElementType() == SharpBasicTypes.STATEMENT ? firstSignificant(statement) : null;
+                    if (inner != null) {
+                        nodeLine.add(line);
+                        statements.add(inner.getPsi());
+                    }
+                }
+            }
+            if (nodeLine.size() == before) {
+                nodeLine.add(line);
+                statements.add(null);
+            }
+        }
+        lineFirstNode[lines.length] = nodeLine.size();
+    }
+
+    /**
+     * Adds the jump edges of a statement.
+     *
+     * @return whether execution continues with the next node
+     */
+    private boolean addEffect(int node, @NotNull ASTNode statement) {
+        IElementType type = statement.getElementType();
+        if (type == SharpBasicTypes.GOTO_STMT || type == SharpBasicTypes.GOSUB_STMT) {
+            addJump(node, (SharpBasicJumpElement) statement.getPsi());
+            return type == SharpBasicTypes.GOSUB_STMT;
+        }
+        if (type == SharpBasicTypes.RETURN_STMT || type == SharpBasicTypes.END_STMT) {
+            return false;
+        }
+        if (type == SharpBasicTypes.IF_STMT) {
+            SharpBasicJumpElement jump = (SharpBasicJumpElement) statement.getPsi();
+            if (jump.getJumpTarget() != SharpBasicJumpElement.NO_TARGET || jump.getJumpLabel() != null) {
+                addJump(node, jump);
+                return false;
+            }
+            ASTNode branch = lastSignificant(statement);
+            ASTNode inner = branch != null && branch.getElementType() == SharpBasicTypes.STATEMENT
+                    ? firstSignificant(branch) : null;
+            if (inner == null) {
+                return true;
+            }
+            if (SharpBasicStatementKind.of(inner.getElementType()) == SharpBasicStatementKind.EXPRESSION) {
+                // IF ... THEN A*10
+                computedJumps.set(node);
+                return false;
+            }
+            return addEffect(node, inner);
+        }
+        if (type == SharpBasicTypes.OTHER_STMT) {
+            addOnTargets(node, statement);
+        }
+        return true;
+    }
+
+    private void addJump(int node, @NotNull SharpBasicJumpElement jump) {
+        int target = jump.getJumpTarget();
+        String label = jump.getJumpLabel();
+        if (target != SharpBasicJumpElement.NO_TARGET) {
+            addEdge(firstNodeOfLine(linesByNumber.get(target)));
+        } else if (label != null) {
+            Integer line = linesByLabel.get(label);
+            addEdge(firstNodeOfLine(line != null ? line : NO_LINE));
+        } else {
+            computedJumps.set(node);
+        }
+    }
+
+    /**
+     * Adds the targets of {@code ON expression GOTO|GOSUB target, ...}, which the grammar parses as
+     * a generic keyword statement. A target that is not a line number literal makes the jump computed.
+     */
+    private void addOnTargets(int node, @NotNull ASTNode statement) {
+        List<ASTNode> leaves = new ArrayList<>();
+        collectLeaves(statement, leaves);
+        if (onId == KeywordTrie.NO_KEYWORD || leaves.isEmpty() || keywordId(leaves.get(0)) != onId) {
+            return;
+        }
+        int start = 1;
+        while (start < leaves.size() && !isJumpKeyword(leaves.get(start))) {
+            start++;
+        }
+        start++;
+
+        int depth = 0;
+        ASTNode literal = null;
+        int segmentLength = 0;
+        for (int i = start; i <= leaves.size(); i++) {
+            ASTNode leaf = i < leaves.size() ? leaves.get(i) : null;
+            IElementType type = leaf != null ? leaf.getElementType() : null;
+            if (leaf == null || (depth == 0 && type == SharpBasicTypes.COMMA)) {
+                // A literal that is not a plain line number, e.g. 1E2, is evaluated like an expression
+                int number = SharpBasicLineNumberOwner.NO_LINE_NUMBER;
+                if (segmentLength == 1 && literal != null) {
+                    number = SharpBasicPsiImplUtil.parseLineNumber(literal.getChars());
+                }
+                if (number != SharpBasicLineNumberOwner.NO_LINE_NUMBER) {
+                    addEdge(firstNodeOfLine(linesByNumber.get(number)));
+                } else if (segmentLength > 0) {
+                    computedJumps.set(node);
+                }
+                literal = null;
+                segmentLength = 0;
+                continue;
+            }
+            if (type == SharpBasicTypes.LPAREN) depth++;
+            if (type == SharpBasicTypes.RPAREN) depth--;
+            segmentLength++;
+            literal = type == SharpBasicTypes.NUMBER ? leaf : null;
+        }
+    }
+
+    private boolean isJumpKeyword(@NotNull ASTNode leaf) {
+        int id = keywordId(leaf);
+        return id != KeywordTrie.NO_KEYWORD && (id == gotoId || id == gosubId);
+    }
+
+    private int keywordId(@NotNull ASTNode leaf) {
+        if (leaf.getElementType() != SharpBasicTypes.KEYWORD) {
+            return KeywordTrie.NO_KEYWORD;
+        }
+        CharSequence text = leaf.getChars();
+        return keywords.resolve(text, 0, text.length());
+    }
+
+    private int firstNodeOfLine(int line) {
+        return line != NO_LINE ? lineFirstNode[line] : NO_LINE;
+    }
+
+    private void addEdge(int target) {
+        if (target == NO_LINE) {
+            return;
+        }
+        // A node has only a few successors, and e.g. IF at the end of a line reaches the next line twice
+        for (int i = successorStart.getInt(successorStart.size() - 1); i < successors.size(); i++) {
+            if (successors.getInt(i) == target) {
+                return;
+            }
+        }
+        successors.add(target);
+    }
+
+    /**
+     * Returns the FOR node a NEXT continues, closing the loops nested in it.
+     */
+    private static int matchFor(IntArrayList forNodes, List<String> forVariables, @Nullable String variable) {
+        for (int i = forNodes.size() - 1; i >= 0; i--) {
+            if (variable == null || variable.equals(forVariables.get(i))) {
+                int node = forNodes.getInt(i);
+                forNodes.size(i);
+                forVariables.subList(i, forVariables.size()).clear();
+                return node;
+            }
+        }
+        return NO_LINE;
+    }
+
+    @Nullable
+    private static String variableOf(@NotNull ASTNode statement) {
+        ASTNode identifier = statement.findChildByType(SharpBasicTypes.IDENTIFIER);
+        return identifier != null ? SharpBasicPsiImplUtil.variableName(identifier.getChars()) : null;
+    }
+
+    private static void collectLeaves(@NotNull ASTNode node, @NotNull List<ASTNode> leaves) {
+        for (ASTNode child = node.getFirstChildNode(); child != null; child = child.getTreeNext()) {
+            if (child.getFirstChildNode() != null) {
+                collectLeaves(child, leaves);
+            } else if (child.getElementType() != TokenType.WHITE_SPACE) {
+                leaves.add(child);
+            }
+        }
+    }
+
+    @Nullable
+    private static ASTNode firstSignificant(@NotNull ASTNode node) {
+        ASTNode child = node.getFirstChildNode();
+        while (child != null && child.getElementType() == TokenType.WHITE_SPACE) {
+            child = child.getTreeNext();
+        }
+        return child;
+    }
+
+    @Nullable
+    private static ASTNode lastSignificant(@NotNull ASTNode node) {
+        ASTNode child = node.getLastChildNode();
+        while (child != null && child.getElementType() == TokenType.WHITE_SPACE) {
+            child = child.getTreePrev();
+        }
+        return child;
+    }
+}
@@ -0,0 +1,75 @@
+package ch.erzberger.sharpbasic.analysis;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Results of the variable dataflow analysis of a program, cached per file until the next PSI change.
+ * <p>
+ * Variables are simple ({@code A}, {@code AB$}), arrays ({@code A()}, {@code B$()}) and the fixed
+ * variables {@code @()}, each a bit in the sets of the analysis. Names are significant to two
+ * characters. The analysis runs on the {@link SharpBasicControlFlow} graph, where a RETURN may
+ * continue after any GOSUB and a computed jump may continue at any line.
+ */
+public final class SharpBasicDataflow {
+    private final List<String> variables;
+    private final List<PsiElement> readsBeforeAssignment;
+    private final List<PsiElement> unusedAssignments;
+    private final List<PsiElement> unusedDims;
+
+    SharpBasicDataflow(List<String> variables, List<PsiElement> readsBeforeAssignment,
+                       List<PsiElement> unusedAssignments, List<PsiElement> unusedDims) {
+        this.variables = variables;
+        this.readsBeforeAssignment = readsBeforeAssignment;
+        this.unusedAssignments = unusedAssignments;
+        this.unusedDims = unusedDims;
+    }
+
+    /**
+     * Returns the dataflow of a file, cached like its control-flow graph until the file changes.
+     */
+    @NotNull
+    public static SharpBasicDataflow of(@NotNull SharpBasicFile file) {
+        return CachedValuesManager.getCachedValue(file, () -> CachedValueProvider.Result.create(
+                new SharpBasicDataflowBuilder(file, SharpBasicControlFlow.of(file)).build(), file));
+    }
+
+    /**
+     * Returns the variables of the program by bit index, e.g. {@code A}, {@code B$()} or {@code @()}.
+     */
+    @NotNull
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Returns the reads of variables that no path from an entry line assigns before. The fixed
+     * variables {@code @()} are not included, since their index is usually computed.
+     */
+    @NotNull
+    public List<PsiElement> getReadsBeforeAssignment() {
+        return readsBeforeAssignment;
+    }
+
+    /**
+     * Returns the assigned variables of LET assignments whose value no path reads. INPUT and READ
+     * are not included: {@code INPUT A$} is often only used to wait for a key.
+     */
+    @NotNull
+    public List<PsiElement> getUnusedAssignments() {
+        return unusedAssignments;
+    }
+
+    /**
+     * Returns the variables in DIM statements that are used nowhere else.
+     */
+    @NotNull
+    public List<PsiElement> getUnusedDims() {
+        return unusedDims;
+    }
+}
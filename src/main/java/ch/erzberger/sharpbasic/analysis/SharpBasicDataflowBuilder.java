@@ -0,0 +1,487 @@
+package ch.erzberger.sharpbasic.analysis;
+
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import ch.erzberger.sharpbasic.psi.impl.SharpBasicPsiImplUtil;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.IElementType;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Builds a {@link SharpBasicDataflow} from a control-flow graph.
+ * <p>
+ * The first pass records the variable events of each node in evaluation order, e.g. {@code A=A+1}
+ * reads A before it assigns it. The graph is then extended with two hub nodes: every node with a
+ * computed jump continues at the hub of all lines, and every RETURN continues at the hub of all
+ * nodes after a GOSUB. Two worklist passes over bitsets of {@code words} longs per node compute the
+ * variables possibly assigned on entry of a node (forward) and the variables live at its exit
+ * (backward), and a last pass replays the events of each node against them.
+ * <p>
+ * Assigning an array element or a fixed variable does not kill the others, and an assignment in
+ * the branch of an IF may not happen, so these assignments never end a live range.
+ */
+final class SharpBasicDataflowBuilder {
+    private static final byte READ = 0;
+    private static final byte ASSIGN = 1;
+    private static final byte INPUT = 2;
+    private static final byte DIM = 3;
+
+    private static final String FIXED = "@()";
+
+    private final SharpBasicControlFlow flow;
+    private final KeywordTrie keywords;
+    private final int gosubId;
+    private final int returnId;
+
+    private final Object2IntOpenHashMap<String> variableIds = new Object2IntOpenHashMap<>();
+    private final List<String> variables = new ArrayList<>();
+    private final BitSet partial = new BitSet();
+
+    // Events in compressed rows per node, like the successors of the graph
+    private final IntArrayList eventStart = new IntArrayList();
+    private final IntArrayList eventVariable = new IntArrayList();
+    private final ByteArrayList eventKind = new ByteArrayList();
+    private final List<PsiElement> eventElement = new ArrayList<>();
+    private final BitSet conditionalEvents = new BitSet();
+    private int ifDepth;
+    private final BitSet gosubNodes = new BitSet();
+    private final BitSet returnNodes = new BitSet();
+
+    SharpBasicDataflowBuilder(@NotNull SharpBasicFile file, @NotNull SharpBasicControlFlow flow) {
+        this.flow = flow;
+        this.keywords = KeywordTrie.forDialect(file.getDialect());
+        this.gosubId = keywords.idOfName("GOSUB");
+        this.returnId = keywords.idOfName("RETURN");
+        variableIds.defaultReturnValue(-1);
+    }
+
+    @NotNull
+    SharpBasicDataflow build() {
+        int nodeCount = flow.getNodeCount();
+        for (int node = 0; node < nodeCount; node++) {
+            eventStart.add(eventVariable.size());
+            PsiElement statement = flow.getStatement(node);
+            if (statement != null) {
+                collect(node, statement.getNode());
+            }
+        }
+        eventStart.add(eventVariable.size());
+
+        int words = Math.max(1, (variables.size() + 63) >>> 6);
+        long[] use = new long[nodeCount * words];
+        long[] def = new long[nodeCount * words];
+        long[] kill = new long[nodeCount * words];
+        for (int node = 0; node < nodeCount; node++) {
+            int base = node * words;
+            for (int event = eventStart.getInt(node); event < eventStart.getInt(node + 1); event++) {
+                int variable = eventVariable.getInt(event);
+                int word = base + (variable >>> 6);
+                long bit = 1L << variable;
+                if (eventKind.getByte(event) == READ) {
+                    if ((kill[word] & bit) == 0) {
+                        use[word] |= bit;
+                    }
+                } else {
+                    def[word] |= bit;
+                    if (kills(event, variable)) {
+                        kill[word] |= bit;
+                    }
+                }
+            }
+        }
+
+        Graph graph = buildGraph(nodeCount);
+        long[] assignedIn = solveAssigned(graph, def, words);
+        long[] liveOut = solveLive(graph, use, kill, words);
+        return report(assignedIn, liveOut, words);
+    }
+
+    // Events
+
+    private void collect(int node, @NotNull ASTNode element) {
+        IElementType type = element.getElementType();
+        if (type == SharpBasicTypes.IF_STMT) {
+            ifDepth++;
+            collectChildren(node, element, null);
+            ifDepth--;
+        } else if (type == SharpBasicTypes.ASSIGNMENT) {
+            collectTarget(node, element, ASSIGN);
+        } else if (type == SharpBasicTypes.VARIABLE) {
+            ASTNode parent = element.getTreeParent();
+            if (parent != null && parent.getElementType() == SharpBasicTypes.DIM_VARIABLE) {
+                collectTarget(node, element, DIM);
+            } else {
+                collectTarget(node, element, INPUT);
+            }
+        } else if (type == SharpBasicTypes.FOR_STMT || type == SharpBasicTypes.READ_STMT) {
+            // FOR I=..., READ A(I): the identifier is assigned after the expressions are evaluated
+            ASTNode identifier = element.findChildByType(SharpBasicTypes.IDENTIFIER);
+            collectChildren(node, element, identifier);
+            if (identifier != null) {
+                addEvent(node, keyOf(identifier), INPUT, identifier);
+            }
+        } else if (type == SharpBasicTypes.NEXT_STMT) {
+            ASTNode identifier = element.findChildByType(SharpBasicTypes.IDENTIFIER);
+            if (identifier != null) {
+                addEvent(node, keyOf(identifier), READ, identifier);
+                addEvent(node, keyOf(identifier), INPUT, identifier);
+            }
+        } else if (type == SharpBasicTypes.IDENTIFIER) {
+            addEvent(node, keyOf(element), READ, element);
+        } else if (type == SharpBasicTypes.AT) {
+            if (isFollowedByParen(element)) {
+                addEvent(node, FIXED, READ, element);
+            }
+        } else if (type == SharpBasicTypes.KEYWORD) {
+            CharSequence text = element.getChars();
+            int id = keywords.resolve(text, 0, text.length());
+            if (id != KeywordTrie.NO_KEYWORD && id == gosubId) {
+                gosubNodes.set(node);
+            } else if (id != KeywordTrie.NO_KEYWORD && id == returnId) {
+                returnNodes.set(node);
+            }
+        } else {
+            collectChildren(node, element, null);
+        }
+    }
+
+    private void collectChildren(int node, @NotNull ASTNode element, @Nullable ASTNode skip) {
+        for (ASTNode child = element.getFirstChildNode(); child != null; child = child.getTreeNext()) {
+            if (child != skip) {
+                collect(node, child);
+            }
+        }
+    }
+
+    /**
+     * Records an assignment or a variable of INPUT, READ or DIM: first the reads of its indexes and
+     * of the assigned value, then the assignment itself.
+     */
+    private void collectTarget(int node, @NotNull ASTNode element, byte kind) {
+        ASTNode target = null;
+        String key = null;
+        ASTNode first = firstSignificant(element);
+        if (first != null && first.getElementType() == SharpBasicTypes.AT) {
+            ASTNode next = nextSignificant(first);
+            if (next != null && next.getElementType() == SharpBasicTypes.IDENTIFIER) {
+                target = next;
+                key = keyOf(next);
+            } else {
+                target = first;
+                key = FIXED;
+            }
+        } else if (first != null && first.getElementType() == SharpBasicTypes.IDENTIFIER) {
+            target = first;
+            key = keyOf(first);
+        }
+        // A KEYWORD target is a parse of e.g. TO=1 and names no variable
+        collectChildren(node, element, target);
+        if (target != null) {
+            addEvent(node, key, kind, target);
+        }
+    }
+
+    private void addEvent(int node, @NotNull String key, byte kind, @NotNull ASTNode element) {
+        int variable = variableIds.getInt(key);
+        if (variable < 0) {
+            variable = variables.size();
+            variableIds.put(key, variable);
+            variables.add(key);
+            if (key.endsWith("()")) {
+                partial.set(variable);
+            }
+        }
+        if (ifDepth > 0) {
+            conditionalEvents.set(eventVariable.size());
+        }
+        eventVariable.add(variable);
+        eventKind.add(kind);
+        eventElement.add(element.getPsi());
+    }
+
+    /**
+     * Returns the variable an identifier names: its significant name, with {@code ()} for an array.
+     */
+    @NotNull
+    private static String keyOf(@NotNull ASTNode identifier) {
+        String name = SharpBasicPsiImplUtil.variableName(identifier.getChars());
+        return isFollowedByParen(identifier) ? name + "()" : name;
+    }
+
+    private static boolean isFollowedByParen(@NotNull ASTNode leaf) {
+        ASTNode next = nextSignificant(leaf);
+        return next != null && next.getElementType() == SharpBasicTypes.LPAREN;
+    }
+
+    // Graph
+
+    private record Graph(int size, int[] successorStart, int[] successors, int[] predecessorStart, int[] predecessors) {
+    }
+
+    /**
+     * Returns the control-flow graph with the two hubs appended as nodes {@code nodeCount} (any line)
+     * and {@code nodeCount + 1} (after any GOSUB).
+     */
+    @NotNull
+    private Graph buildGraph(int nodeCount) {
+        int anyLine = nodeCount;
+        int afterGosub = nodeCount + 1;
+        int size = nodeCount + 2;
+        IntArrayList start = new IntArrayList(size + 1);
+        IntArrayList successors = new IntArrayList();
+        for (int node = 0; node < nodeCount; node++) {
+            start.add(successors.size());
+            for (int i = flow.successorStart(node); i < flow.successorEnd(node); i++) {
+                successors.add(flow.successorAt(i));
+            }
+            if (flow.hasComputedJump(node)) {
+                successors.add(anyLine);
+            }
+            if (returnNodes.get(node)) {
+                successors.add(afterGosub);
+            }
+        }
+        start.add(successors.size());
+        for (int line = 0; line < flow.getLineCount(); line++) {
+            successors.add(flow.firstNodeOf(line));
+        }
+        start.add(successors.size());
+        for (int node = gosubNodes.nextSetBit(0); node >= 0; node = gosubNodes.nextSetBit(node + 1)) {
+            if (node + 1 < nodeCount) {
+                successors.add(node + 1);
+            }
+        }
+        start.add(successors.size());
+
+        int[] successorStart = start.toIntArray();
+        int[] successorArray = successors.toIntArray();
+        int[] predecessorStart = new int[size + 1];
+        for (int successor : successorArray) {
+            predecessorStart[successor + 1]++;
+        }
+        for (int node = 0; node < size; node++) {
+            predecessorStart[node + 1] += predecessorStart[node];
+        }
+        int[] fill = predecessorStart.clone();
+        int[] predecessors = new int[successorArray.length];
+        for (int node = 0; node < size; node++) {
+            for (int i = successorStart[node]; i < successorStart[node + 1]; i++) {
+                predecessors[fill[successorArray[i]]++] = node;
+            }
+        }
+        return new Graph(size, successorStart, successorArray, predecessorStart, predecessors);
+    }
+
+    // Solvers
+
+    /**
+     * Returns the variables that some path assigns before each node: in = union of the out of the
+     * predecessors, out = in | def.
+     */
+    @NotNull
+    private static long[] solveAssigned(@NotNull Graph graph, long[] def, int words) {
+        int nodeCount = def.length / words;
+        long[] in = new long[graph.size * words];
+        long[] out = new long[graph.size * words];
+        Worklist worklist = new Worklist(graph.size);
+        for (int node = 0; node < graph.size; node++) {
+            worklist.push(node);
+        }
+        while (!worklist.isEmpty()) {
+            int node = worklist.pop();
+            int base = node * words;
+            boolean changed = false;
+            for (int w = 0; w < words; w++) {
+                long value = 0;
+                for (int i = graph.predecessorStart[node]; i < graph.predecessorStart[node + 1]; i++) {
+                    value |= out[graph.predecessors[i] * words + w];
+                }
+                in[base + w] = value;
+                if (node < nodeCount) {
+                    value |= def[base + w];
+                }
+                if (value != out[base + w]) {
+                    out[base + w] = value;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                for (int i = graph.successorStart[node]; i < graph.successorStart[node + 1]; i++) {
+                    worklist.push(graph.successors[i]);
+                }
+            }
+        }
+        return in;
+    }
+
+    /**
+     * Returns the variables live after each node: out = union of the in of the successors,
+     * in = use | (out & ~kill).
+     */
+    @NotNull
+    private static long[] solveLive(@NotNull Graph graph, long[] use, long[] kill, int words) {
+        int nodeCount = use.length / words;
+        long[] in = new long[graph.size * words];
+        long[] out = new long[graph.size * words];
+        Worklist worklist = new Worklist(graph.size);
+        for (int node = graph.size - 1; node >= 0; node--) {
+            worklist.push(node);
+        }
+        while (!worklist.isEmpty()) {
+            int node = worklist.pop();
+            int base = node * words;
+            boolean changed = false;
+            for (int w = 0; w < words; w++) {
+                long value = 0;
+                for (int i = graph.successorStart[node]; i < graph.successorStart[node + 1]; i++) {
+                    value |= in[graph.successors[i] * words + w];
+                }
+                out[base + w] = value;
+                if (node < nodeCount) {
+                    value = use[base + w] | (value & ~kill[base + w]);
+                }
+                if (value != in[base + w]) {
+                    in[base + w] = value;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                for (int i = graph.predecessorStart[node]; i < graph.predecessorStart[node + 1]; i++) {
+                    worklist.push(graph.predecessors[i]);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Stack of nodes that need another visit; a node is only queued once at a time.
+     */
+    private static final class Worklist {
+        private final int[] stack;
+        private final BitSet queued;
+        private int size;
+
+        Worklist(int capacity) {
+            stack = new int[capacity];
+            queued = new BitSet(capacity);
+        }
+
+        void push(int node) {
+            if (!queued.get(node)) {
+                queued.set(node);
+                stack[size++] = node;
+            }
+        }
+
+        int pop() {
+            int node = stack[--size];
+            queued.clear(node);
+            return node;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    // Results
+
+    @NotNull
+    private SharpBasicDataflow report(long[] assignedIn, long[] liveOut, int words) {
+        List<PsiElement> readsBeforeAssignment = new ArrayList<>();
+        List<PsiElement> unusedAssignments = new ArrayList<>();
+        List<PsiElement> unusedDims = new ArrayList<>();
+        BitSet reachable = flow.getReachableNodes();
+        int fixed = variableIds.getInt(FIXED);
+
+        long[] assigned = new long[words];
+        long[] live = new long[words];
+        for (int node = reachable.nextSetBit(0); node >= 0; node = reachable.nextSetBit(node + 1)) {
+            int start = eventStart.getInt(node);
+            int end = eventStart.getInt(node + 1);
+
+            System.arraycopy(assignedIn, node * words, assigned, 0, words);
+            for (int event = start; event < end; event++) {
+                int variable = eventVariable.getInt(event);
+                if (eventKind.getByte(event) == READ) {
+                    if (!isSet(assigned, variable) && variable != fixed) {
+                        readsBeforeAssignment.add(eventElement.get(event));
+                    }
+                } else {
+                    assigned[variable >>> 6] |= 1L << variable;
+                }
+            }
+
+            System.arraycopy(liveOut, node * words, live, 0, words);
+            for (int event = end - 1; event >= start; event--) {
+                int variable = eventVariable.getInt(event);
+                byte kind = eventKind.getByte(event);
+                if (kind == READ) {
+                    live[variable >>> 6] |= 1L << variable;
+                    continue;
+                }
+                if (kind == ASSIGN && !isSet(live, variable)) {
+                    unusedAssignments.add(eventElement.get(event));
+                }
+                if (kills(event, variable)) {
+                    live[variable >>> 6] &= ~(1L << variable);
+                }
+            }
+        }
+
+        // DIMs are checked in all nodes: a variable used only in unreachable code still counts
+        int[] uses = new int[variables.size()];
+        for (int event = 0; event < eventVariable.size(); event++) {
+            if (eventKind.getByte(event) != DIM) {
+                uses[eventVariable.getInt(event)]++;
+            }
+        }
+        for (int event = 0; event < eventVariable.size(); event++) {
+            if (eventKind.getByte(event) == DIM && uses[eventVariable.getInt(event)] == 0) {
+                unusedDims.add(eventElement.get(event));
+            }
+        }
+        return new SharpBasicDataflow(List.copyOf(variables), readsBeforeAssignment, unusedAssignments, unusedDims);
+    }
+
+    /**
+     * Returns whether an assignment event replaces the whole value of its variable.
+     */
+    private boolean kills(int event, int variable) {
+        return !partial.get(variable) && !conditionalEvents.get(event);
+    }
+
+    private static boolean isSet(long[] bits, int variable) {
+        return (bits[variable >>> 6] & (1L << variable)) != 0;
+    }
+
+    @Nullable
+    private static ASTNode firstSignificant(@NotNull ASTNode node) {
+        ASTNode child = node.getFirstChildNode();
+        while (child != null && child.getElementType() == TokenType.WHITE_SPACE) {
+            child = child.getTreeNext();
+        }
+        return child;
+    }
+
+    @Nullable
+    private static ASTNode nextSignificant(@NotNull ASTNode node) {
+        ASTNode next = node.getTreeNext();
+        while (next != null && next.getElementType() == TokenType.WHITE_SPACE) {
+            next = next.getTreeNext();
+        }
+        return next;
+    }
+}
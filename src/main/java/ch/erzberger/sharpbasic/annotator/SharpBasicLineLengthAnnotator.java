@@ -0,0 +1,38 @@
+package ch.erzberger.sharpbasic.annotator;
+
+import ch.erzberger.sharpbasic.lexer.TokenizedLineSize;
+import ch.erzberger.sharpbasic.psi.SharpBasicDeviceLine;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineDeclaration;
+import com.intellij.lang.annotation.AnnotationHolder;
+import com.intellij.lang.annotation.Annotator;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Marks numbered lines that are longer than the device allows once tokenized. The limit is on the
+ * tokenized size, not on the source text: a line with many keywords can be far longer than
+ * {@link TokenizedLineSize#MAX_BYTES} characters and still fit.
+ * <p>
+ * The size is cached per line, so after an edit only the edited lines are lexed again.
+ */
+public class SharpBasicLineLengthAnnotator implements Annotator {
+    @Override
+    public void annotate(@NotNull PsiElement element, @NotNull AnnotationHolder holder) {
+        if (!(element instanceof SharpBasicDeviceLine line)
+                || line.getLineNumber() == SharpBasicDeviceLine.NO_LINE_NUMBER) {
+            return;
+        }
+        int size = line.getTokenizedSize();
+        if (size <= TokenizedLineSize.MAX_BYTES) {
+            return;
+        }
+        // The body is the line without its terminator
+        SharpBasicLineDeclaration body = PsiTreeUtil.getChildOfType(line, SharpBasicLineDeclaration.class);
+        holder.newAnnotation(HighlightSeverity.ERROR, "Line is " + size + " bytes when tokenized, the device allows "
+                        + TokenizedLineSize.MAX_BYTES)
+                .range(body != null ? body : line)
+                .create();
+    }
+}
@@ -3,7 +3,8 @@ package ch.erzberger.sharpbasic.completion;
 import ch.erzberger.sharpbasic.SharpBasicLanguage;
 import ch.erzberger.sharpbasic.core.keyword.BasicKeyword;
 import ch.erzberger.sharpbasic.core.keyword.KeywordCategory;
-import ch.erzberger.sharpbasic.core.keyword.KeywordRegistry;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectSettings;
 import com.intellij.codeInsight.completion.*;
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
@@ -11,17 +12,14 @@ import com.intellij.patterns.PlatformPatterns;
 import com.intellij.util.ProcessingContext;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.EnumSet;
 import java.util.List;
 
 /**
  * Provides code completion for Sharp BASIC keywords.
+ * Only the keywords of the file's dialect are offered, so completion agrees with the lexer.
  */
 public class SharpBasicCompletionContributor extends CompletionContributor {
 
-    private static final KeywordRegistry REGISTRY = KeywordRegistry.forDevice(
-            EnumSet.allOf(KeywordCategory.class));
-
     public SharpBasicCompletionContributor() {
         extend(CompletionType.BASIC,
                 PlatformPatterns.psiElement().withLanguage(SharpBasicLanguage.INSTANCE),
@@ -48,13 +46,14 @@ public class SharpBasicCompletionContributor extends CompletionContributor {
                         CompletionResultSet prefixResult = prefix.isEmpty()
                                 ? result
                                 : result.withPrefixMatcher(prefix);
-                        addKeywordCompletions(prefixResult);
+                        SharpBasicDialect dialect = SharpBasicDialectSettings.getDialect(parameters.getOriginalFile());
+                        addKeywordCompletions(prefixResult, dialect);
                     }
                 });
     }
 
-    private void addKeywordCompletions(@NotNull CompletionResultSet result) {
-        List<BasicKeyword> allKeywords = REGISTRY.allKeywords();
+    private void addKeywordCompletions(@NotNull CompletionResultSet result, @NotNull SharpBasicDialect dialect) {
+        List<BasicKeyword> allKeywords = dialect.getRegistry().allKeywords();
 
         for (BasicKeyword keyword : allKeywords) {
             LookupElementBuilder element = LookupElementBuilder.create(keyword.name())
@@ -0,0 +1,68 @@
+package ch.erzberger.sharpbasic.dialect;
+
+import ch.erzberger.sharpbasic.SharpBasicFileType;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.actionSystem.Separator;
+import com.intellij.openapi.actionSystem.ToggleAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Popup group for selecting the BASIC dialect of the current file.
+ * Accessible via Code menu or context menu.
+ */
+public class SelectDialectActionGroup extends DefaultActionGroup {
+
+    public SelectDialectActionGroup() {
+        add(new SelectDialectAction(null));
+        add(Separator.getInstance());
+        for (SharpBasicDialect dialect : SharpBasicDialect.values()) {
+            add(new SelectDialectAction(dialect));
+        }
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        VirtualFile file = e.getData(CommonDataKeys.VIRTUAL_FILE);
+        e.getPresentation().setEnabledAndVisible(
+                e.getProject() != null && file != null && file.getFileType() == SharpBasicFileType.INSTANCE);
+    }
+
+    /**
+     * Selects one dialect, or automatic detection if the dialect is null.
+     */
+    private static class SelectDialectAction extends ToggleAction {
+        private final SharpBasicDialect dialect;
+
+        SelectDialectAction(@Nullable SharpBasicDialect dialect) {
+            super(dialect != null ? dialect.getDisplayName() : "Auto-Detect");
+            this.dialect = dialect;
+        }
+
+        @Override
+        public boolean isSelected(@NotNull AnActionEvent e) {
+            SharpBasicDialectSettings settings = settings(e);
+            VirtualFile file = e.getData(CommonDataKeys.VIRTUAL_FILE);
+            return settings != null && file != null && settings.getExplicitDialect(file) == dialect;
+        }
+
+        @Override
+        public void setSelected(@NotNull AnActionEvent e, boolean state) {
+            SharpBasicDialectSettings settings = settings(e);
+            VirtualFile file = e.getData(CommonDataKeys.VIRTUAL_FILE);
+            if (state && settings != null && file != null) {
+                settings.setExplicitDialect(file, dialect);
+            }
+        }
+
+        @Nullable
+        private static SharpBasicDialectSettings settings(@NotNull AnActionEvent e) {
+            Project project = e.getProject();
+            return project != null ? SharpBasicDialectSettings.getInstance(project) : null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ch.erzberger.sharpbasic.dialect;
+
+import ch.erzberger.sharpbasic.core.keyword.KeywordCategory;
+import ch.erzberger.sharpbasic.core.keyword.KeywordRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The BASIC dialect of a file: the machine and the extensions whose keywords it may use.
+ * Lexing, parsing, completion and reformatting all use the keyword registry of the file's dialect.
+ */
+public enum SharpBasicDialect {
+    PC1500("PC-1500", EnumSet.of(KeywordCategory.PC1500)),
+    PC1500_CE150("PC-1500 + CE-150", EnumSet.of(KeywordCategory.PC1500, KeywordCategory.CE150_EXTENSION)),
+    PC1500_CE158("PC-1500 + CE-150 + CE-158",
+            EnumSet.of(KeywordCategory.PC1500, KeywordCategory.CE150_EXTENSION, KeywordCategory.CE158_EXTENSION)),
+    PC1600("PC-1600", EnumSet.allOf(KeywordCategory.class));
+
+    /**
+     * Dialect of files without an explicit setting in which no PC-1600 keyword was detected.
+     * It uses {@link KeywordRegistry#forPc1500()}, the registry the plugin has always used.
+     */
+    public static final SharpBasicDialect DEFAULT = PC1500_CE158;
+
+    private final String displayName;
+    private final Set<KeywordCategory> categories;
+    private volatile KeywordRegistry registry;
+
+    SharpBasicDialect(String displayName, Set<KeywordCategory> categories) {
+        this.displayName = displayName;
+        this.categories = Collections.unmodifiableSet(categories);
+    }
+
+    @NotNull
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @NotNull
+    public Set<KeywordCategory> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Returns the keyword registry of this dialect, created on first use.
+     */
+    @NotNull
+    public KeywordRegistry getRegistry() {
+        KeywordRegistry result = registry;
+        if (result == null) {
+            result = this == DEFAULT ? KeywordRegistry.forPc1500() : KeywordRegistry.forDevice(EnumSet.copyOf(categories));
+            registry = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+package ch.erzberger.sharpbasic.dialect;
+
+import ch.erzberger.sharpbasic.core.keyword.KeywordCategory;
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
+import ch.erzberger.sharpbasic.lexer.PreprocessingSharpBasicLexer;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Detects the dialect of a file without an explicit setting.
+ * <p>
+ * The text is lexed with the keywords of all dialects, so keywords are found at the same token boundaries
+ * the lexer uses: glued to a line number or a variable ({@code 10GPRINT}, {@code A=1:GLINE}), spaced, and
+ * never inside strings or comments. The lines go through the shared line token cache, so detecting again
+ * after an edit only lexes the changed lines. Detection stops at the first PC-1600 keyword. Otherwise the
+ * file gets {@link SharpBasicDialect#DEFAULT}: the narrower dialects are only used when selected explicitly,
+ * because they would change how existing programs that contain CE-150 or CE-158 keywords as text are lexed.
+ */
+public final class SharpBasicDialectDetector {
+
+    private SharpBasicDialectDetector() {
+    }
+
+    @NotNull
+    public static SharpBasicDialect detect(@NotNull CharSequence text) {
+        return countPc1600Keywords(text, 0, text.length(), 1) > 0 ? SharpBasicDialect.PC1600 : SharpBasicDialect.DEFAULT;
+    }
+
+    /**
+     * Counts the PC-1600 keywords in {@code text[start, end)}, which must start at a line start.
+     * {@link SharpBasicDialectTracker} keeps this count for a document by counting only the edited lines.
+     */
+    public static int countPc1600Keywords(@NotNull CharSequence text, int start, int end) {
+        return countPc1600Keywords(text, start, end, Integer.MAX_VALUE);
+    }
+
+    private static int countPc1600Keywords(@NotNull CharSequence text, int start, int end, int limit) {
+        KeywordTrie keywords = KeywordTrie.forDialect(SharpBasicDialect.PC1600);
+        PreprocessingSharpBasicLexer lexer = new PreprocessingSharpBasicLexer(SharpBasicDialect.PC1600);
+        lexer.start(text, start, end, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        int count = 0;
+        for (IElementType type; count < limit && (type = lexer.getTokenType()) != null; lexer.advance()) {
+            if (type != SharpBasicTypes.KEYWORD) {
+                continue;
+            }
+            int id = keywords.resolve(text, lexer.getTokenStart(), lexer.getTokenEnd());
+            if (id != KeywordTrie.NO_KEYWORD && keywords.categoryOf(id) == KeywordCategory.PC1600) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,143 @@
+package ch.erzberger.sharpbasic.dialect;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.LightVirtualFile;
+import com.intellij.util.FileContentUtilCore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-project storage of the dialects selected explicitly for individual files.
+ * Files without an explicit dialect use {@link SharpBasicDialectDetector}.
+ */
+@Service(Service.Level.PROJECT)
+@State(name = "SharpBasicDialects", storages = @Storage("sharpBasic.xml"))
+public final class SharpBasicDialectSettings implements PersistentStateComponent<SharpBasicDialectSettings.DialectState> {
+
+    public static class DialectState {
+        /** Dialect name by file URL. */
+        public Map<String, String> dialects = new TreeMap<>();
+    }
+
+    private DialectState state = new DialectState();
+
+    @Nullable
+    public static SharpBasicDialectSettings getInstance(@NotNull Project project) {
+        return project.isDefault() ? null : project.getService(SharpBasicDialectSettings.class);
+    }
+
+    @NotNull
+    @Override
+    public DialectState getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull DialectState state) {
+        this.state = state;
+    }
+
+    /**
+     * Returns the dialect selected for the file, or null if it is detected automatically.
+     */
+    @Nullable
+    public synchronized SharpBasicDialect getExplicitDialect(@NotNull VirtualFile file) {
+        String name = state.dialects.get(file.getUrl());
+        if (name == null) {
+            return null;
+        }
+        try {
+            return SharpBasicDialect.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Selects the dialect of a file, or switches it back to automatic detection if {@code dialect} is null.
+     * The file is reparsed and rehighlighted.
+     */
+    public void setExplicitDialect(@NotNull VirtualFile file, @Nullable SharpBasicDialect dialect) {
+        synchronized (this) {
+            if (dialect == null) {
+                state.dialects.remove(file.getUrl());
+            } else {
+                state.dialects.put(file.getUrl(), dialect.name());
+            }
+        }
+        FileContentUtilCore.reparseFiles(file);
+    }
+
+    /**
+     * Returns the dialect of a PSI file. Copies made for reparsing or completion use the setting of
+     * the file they were made from. A file with a loaded document uses its {@link SharpBasicDialectTracker},
+     * so the text is not scanned again after every change.
+     */
+    @NotNull
+    public static SharpBasicDialect getDialect(@NotNull PsiFile file) {
+        VirtualFile virtualFile = file.getOriginalFile().getViewProvider().getVirtualFile();
+        if (virtualFile instanceof LightVirtualFile light && light.getOriginalFile() != null) {
+            virtualFile = light.getOriginalFile();
+        }
+        Document document = FileDocumentManager.getInstance().getCachedDocument(virtualFile);
+        if (document != null) {
+            return getDialect(file.getProject(), virtualFile, document);
+        }
+        return getDialect(file.getProject(), virtualFile, file.getViewProvider().getContents());
+    }
+
+    /**
+     * Returns the dialect of a file for which only the virtual file is known, e.g. when creating a highlighter.
+     * The file is not read: without a loaded document the file gets {@link SharpBasicDialect#DEFAULT}, and the
+     * editor highlighter switches dialects once it sees the document.
+     */
+    @NotNull
+    public static SharpBasicDialect getDialect(@Nullable Project project, @Nullable VirtualFile file) {
+        if (file == null) {
+            return SharpBasicDialect.DEFAULT;
+        }
+        Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+        if (document != null) {
+            return getDialect(project, file, document);
+        }
+        SharpBasicDialect explicit = getExplicitDialect(project, file);
+        return explicit != null ? explicit : SharpBasicDialect.DEFAULT;
+    }
+
+    /**
+     * Returns the explicit dialect of the file, or the dialect its document's tracker detected.
+     */
+    @NotNull
+    public static SharpBasicDialect getDialect(@Nullable Project project, @Nullable VirtualFile file,
+                                               @NotNull Document document) {
+        SharpBasicDialect explicit = file != null ? getExplicitDialect(project, file) : null;
+        return explicit != null ? explicit : SharpBasicDialectTracker.getInstance(document).getDialect();
+    }
+
+    /**
+     * Returns the explicit dialect of the file, or the dialect detected from its text.
+     */
+    @NotNull
+    public static SharpBasicDialect getDialect(@Nullable Project project, @Nullable VirtualFile file,
+                                               @NotNull CharSequence text) {
+        SharpBasicDialect explicit = file != null ? getExplicitDialect(project, file) : null;
+        return explicit != null ? explicit : SharpBasicDialectDetector.detect(text);
+    }
+
+    @Nullable
+    private static SharpBasicDialect getExplicitDialect(@Nullable Project project, @NotNull VirtualFile file) {
+        SharpBasicDialectSettings settings = project != null ? getInstance(project) : null;
+        return settings != null ? settings.getExplicitDialect(file) : null;
+    }
+}
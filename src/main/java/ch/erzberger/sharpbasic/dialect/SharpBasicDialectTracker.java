@@ -0,0 +1,82 @@
+package ch.erzberger.sharpbasic.dialect;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.ex.EditorDocumentPriorities;
+import com.intellij.openapi.editor.ex.PrioritizedDocumentListener;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keeps the number of PC-1600 keywords in a document up to date while it is edited, so the detected dialect
+ * of an open file is known without scanning the whole text.
+ * <p>
+ * Lines are lexically independent, so an edit only changes the count of the lines it touches: their keywords
+ * are subtracted before the change and those of the new lines added after it. The document is scanned once,
+ * when the tracker is created.
+ * <p>
+ * The count is updated before the editor highlighters see the change, so they can compare it with their own
+ * dialect.
+ */
+public final class SharpBasicDialectTracker implements PrioritizedDocumentListener {
+    private static final Key<SharpBasicDialectTracker> KEY = Key.create("SharpBasic.dialectTracker");
+
+    private volatile int pc1600Keywords;
+
+    private SharpBasicDialectTracker(@NotNull Document document) {
+        pc1600Keywords = SharpBasicDialectDetector.countPc1600Keywords(document.getImmutableCharSequence(), 0,
+                document.getTextLength());
+    }
+
+    /**
+     * Returns the tracker of a document, creating it on first use.
+     */
+    @NotNull
+    public static SharpBasicDialectTracker getInstance(@NotNull Document document) {
+        SharpBasicDialectTracker tracker = document.getUserData(KEY);
+        if (tracker != null) {
+            return tracker;
+        }
+        synchronized (KEY) {
+            tracker = document.getUserData(KEY);
+            if (tracker == null) {
+                tracker = new SharpBasicDialectTracker(document);
+                document.addDocumentListener(tracker);
+                document.putUserData(KEY, tracker);
+            }
+            return tracker;
+        }
+    }
+
+    /**
+     * Returns the dialect detected from the document text.
+     */
+    @NotNull
+    public SharpBasicDialect getDialect() {
+        return pc1600Keywords > 0 ? SharpBasicDialect.PC1600 : SharpBasicDialect.DEFAULT;
+    }
+
+    @Override
+    public int getPriority() {
+        return EditorDocumentPriorities.LEXER_EDITOR - 1;
+    }
+
+    @Override
+    public void beforeDocumentChange(@NotNull DocumentEvent event) {
+        pc1600Keywords -= countLines(event.getDocument(), event.getOffset(), event.getOffset() + event.getOldLength());
+    }
+
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event) {
+        pc1600Keywords += countLines(event.getDocument(), event.getOffset(), event.getOffset() + event.getNewLength());
+    }
+
+    /**
+     * Counts the PC-1600 keywords of the lines that contain {@code [start, end]}.
+     */
+    private static int countLines(@NotNull Document document, int start, int end) {
+        int lineStart = document.getLineStartOffset(document.getLineNumber(start));
+        int lineEnd = document.getLineEndOffset(document.getLineNumber(end));
+        return SharpBasicDialectDetector.countPc1600Keywords(document.getImmutableCharSequence(), lineStart, lineEnd);
+    }
+}
@@ -0,0 +1,64 @@
+package ch.erzberger.sharpbasic.findusages;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicIdentifier;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineDeclaration;
+import com.intellij.lang.cacheBuilder.WordsScanner;
+import com.intellij.lang.findUsages.FindUsagesProvider;
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Find Usages of a line, i.e. the GOTO, GOSUB and IF statements that jump to it, and of a variable.
+ * The words scanner indexes only identifiers, for the variable search.
+ */
+public class SharpBasicFindUsagesProvider implements FindUsagesProvider {
+
+    @Nullable
+    @Override
+    public WordsScanner getWordsScanner() {
+        return new SharpBasicWordsScanner();
+    }
+
+    @Override
+    public boolean canFindUsagesFor(@NotNull PsiElement psiElement) {
+        return psiElement instanceof SharpBasicLineDeclaration || psiElement instanceof SharpBasicIdentifier;
+    }
+
+    @Nullable
+    @Override
+    public String getHelpId(@NotNull PsiElement psiElement) {
+        return null;
+    }
+
+    @Nls
+    @NotNull
+    @Override
+    public String getType(@NotNull PsiElement element) {
+        if (element instanceof SharpBasicLineDeclaration) return "line";
+        if (element instanceof SharpBasicIdentifier) return "variable";
+        return "";
+    }
+
+    @Nls
+    @NotNull
+    @Override
+    public String getDescriptiveName(@NotNull PsiElement element) {
+        return getNodeText(element, true);
+    }
+
+    @Nls
+    @NotNull
+    @Override
+    public String getNodeText(@NotNull PsiElement element, boolean useFullName) {
+        if (element instanceof SharpBasicLineDeclaration line && line.getPresentation() != null) {
+            String text = line.getPresentation().getPresentableText();
+            return text != null ? text : "";
+        }
+        if (element instanceof SharpBasicIdentifier identifier) {
+            return identifier.getVariableName();
+        }
+        return "";
+    }
+}
@@ -0,0 +1,38 @@
+package ch.erzberger.sharpbasic.findusages;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicJumpElement;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineDeclaration;
+import com.intellij.openapi.application.QueryExecutorBase;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.PsiSearchScopeUtil;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.util.Processor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Finds the jumps to a line in the cached jump table of its file instead of searching text.
+ * Jumps never leave their file, so no other file is searched.
+ */
+public class SharpBasicJumpReferencesSearcher extends QueryExecutorBase<PsiReference, ReferencesSearch.SearchParameters> {
+
+    public SharpBasicJumpReferencesSearcher() {
+        super(true);
+    }
+
+    @Override
+    public void processQuery(@NotNull ReferencesSearch.SearchParameters queryParameters,
+                             @NotNull Processor<? super PsiReference> consumer) {
+        if (!(queryParameters.getElementToSearch() instanceof SharpBasicLineDeclaration line)
+                || !(line.getContainingFile() instanceof SharpBasicFile file)
+                || !PsiSearchScopeUtil.isInScope(queryParameters.getEffectiveSearchScope(), file)) {
+            return;
+        }
+        for (SharpBasicJumpElement jump : file.getJumpTable().findJumpsTo(line)) {
+            PsiReference reference = jump.getReference();
+            if (reference != null && reference.isReferenceTo(line) && !consumer.process(reference)) {
+                return;
+            }
+        }
+    }
+}
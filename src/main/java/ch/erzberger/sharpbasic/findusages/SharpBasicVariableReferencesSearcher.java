@@ -0,0 +1,60 @@
+package ch.erzberger.sharpbasic.findusages;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicIdentifier;
+import com.intellij.openapi.application.QueryExecutorBase;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.LocalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.psi.search.SearchScope;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.Processor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Finds the occurrences of a variable. Candidate files come from the identifier index filled by
+ * {@link SharpBasicWordsScanner}; only those files are searched for identifiers with the same
+ * significant name.
+ */
+public class SharpBasicVariableReferencesSearcher extends QueryExecutorBase<PsiReference, ReferencesSearch.SearchParameters> {
+
+    public SharpBasicVariableReferencesSearcher() {
+        super(true);
+    }
+
+    @Override
+    public void processQuery(@NotNull ReferencesSearch.SearchParameters queryParameters,
+                             @NotNull Processor<? super PsiReference> consumer) {
+        if (!(queryParameters.getElementToSearch() instanceof SharpBasicIdentifier target)) {
+            return;
+        }
+        String name = target.getVariableName();
+        SearchScope scope = queryParameters.getEffectiveSearchScope();
+        if (scope instanceof LocalSearchScope local) {
+            for (PsiElement element : local.getScope()) {
+                if (!processOccurrences(element, name, consumer)) {
+                    return;
+                }
+            }
+        } else if (scope instanceof GlobalSearchScope global) {
+            PsiSearchHelper.getInstance(target.getProject()).processAllFilesWithWord(name, global,
+                    file -> !(file instanceof SharpBasicFile) || processOccurrences(file, name, consumer), true);
+        }
+    }
+
+    private static boolean processOccurrences(@NotNull PsiElement root, @NotNull String name,
+                                              @NotNull Processor<? super PsiReference> consumer) {
+        PsiFile file = root.getContainingFile();
+        if (!(file instanceof SharpBasicFile)) {
+            return true;
+        }
+        return PsiTreeUtil.processElements(root, element ->
+                !(element instanceof SharpBasicIdentifier identifier)
+                        || !name.equals(identifier.getVariableName())
+                        || consumer.process(identifier.getReference()));
+    }
+}
@@ -0,0 +1,56 @@
+package ch.erzberger.sharpbasic.findusages;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectDetector;
+import ch.erzberger.sharpbasic.lexer.SharpBasicLexerAdapter;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import ch.erzberger.sharpbasic.psi.impl.SharpBasicPsiImplUtil;
+import com.intellij.lang.cacheBuilder.VersionedWordsScanner;
+import com.intellij.lang.cacheBuilder.WordOccurrence;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.Processor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Words for the identifier index: only identifier tokens, each under the significant part of its
+ * variable name, so {@code ABC$} is found when searching for {@code AB$}. Keywords, strings and
+ * comments are not indexed, so text that only looks like a variable is never a candidate.
+ * <p>
+ * Like all index data, the words depend on the content only. The text is lexed once with the keywords of
+ * all dialects, like {@link SharpBasicDialectDetector} does: for a PC-1600 file these are its tokens, and a
+ * file without PC-1600 keywords gets the same tokens as with the default dialect.
+ */
+public class SharpBasicWordsScanner extends VersionedWordsScanner {
+
+    @Override
+    public void processWords(@NotNull CharSequence fileText, @NotNull Processor<? super WordOccurrence> processor) {
+        SharpBasicLexerAdapter lexer = new SharpBasicLexerAdapter(SharpBasicDialect.PC1600);
+        lexer.start(fileText);
+        WordOccurrence occurrence = new WordOccurrence(fileText, 0, 0, WordOccurrence.Kind.CODE);
+        for (IElementType type; (type = lexer.getTokenType()) != null; lexer.advance()) {
+            if (type != SharpBasicTypes.IDENTIFIER) {
+                continue;
+            }
+            CharSequence token = fileText.subSequence(lexer.getTokenStart(), lexer.getTokenEnd());
+            String name = SharpBasicPsiImplUtil.variableName(token);
+            // Without the blanks folded in front of the token, the name is often the text itself
+            TextRange range = SharpBasicPsiImplUtil.significantRange(token).shiftRight(lexer.getTokenStart());
+            int start = range.getStartOffset();
+            int end = range.getEndOffset();
+            if (name.length() == end - start) {
+                occurrence.init(fileText, start, end, WordOccurrence.Kind.CODE);
+            } else {
+                occurrence.init(name, 0, name.length(), WordOccurrence.Kind.CODE);
+            }
+            if (!processor.process(occurrence)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+}
@@ -0,0 +1,134 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.UnaryOperator;
+
+/**
+ * Runs a line-local reformatter on large sources in parallel.
+ * <p>
+ * PC-1500 lines are lexically independent, so a source can be split on line boundaries and every shard
+ * expanded, lexed, parsed and printed on its own fork-join task. The shard results are joined in order.
+ * The output is identical to reformatting the whole source at once:
+ * <ul>
+ *   <li>Line endings are normalized to {@code \n} before splitting and restored afterwards, using the
+ *       line ending detected on the whole source, exactly like the sequential path.</li>
+ *   <li>Shards are only split between two numbered lines, so every shard ends with a line that produces
+ *       output, and blank or comment lines never sit at a shard boundary.</li>
+ * </ul>
+ * Reformatters whose output depends on other lines (renumbering) must not use this class.
+ */
+public final class BatchReformatter {
+    /** Sources shorter than this are reformatted on the calling thread. */
+    static final int MIN_PARALLEL_LENGTH = 64 * 1024;
+    /** Shards are not made smaller than this, so task overhead stays small against parsing. */
+    static final int MIN_SHARD_LENGTH = 16 * 1024;
+    // Shards per worker, so uneven shards still keep all workers busy
+    private static final int SHARDS_PER_THREAD = 4;
+
+    private BatchReformatter() {
+    }
+
+    /**
+     * Reformats the code with the given sequential reformatter, in parallel on the common fork-join pool
+     * if the code is large enough.
+     *
+     * @param code        the code to reformat
+     * @param reformatter the sequential reformatter; it must treat every line independently
+     * @return the reformatted code, identical to {@code reformatter.apply(code)}
+     */
+    public static String reformat(String code, UnaryOperator<String> reformatter) {
+        return reformat(code, reformatter, reformatter);
+    }
+
+    /**
+     * Like {@link #reformat(String, UnaryOperator)}, with a separate reformatter for the shards. A shard is
+     * never reformatted twice, so the shards should bypass the {@link ParseCache}: caching them only
+     * evicts the whole sources the cache is for.
+     *
+     * @param code             the code to reformat
+     * @param reformatter      the sequential reformatter, used when the code is not split
+     * @param shardReformatter the reformatter for a shard, giving the same result as {@code reformatter}
+     * @return the reformatted code, identical to {@code reformatter.apply(code)}
+     */
+    public static String reformat(String code, UnaryOperator<String> reformatter,
+                                  UnaryOperator<String> shardReformatter) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int shardLength = Math.max(MIN_SHARD_LENGTH, code.length() / (pool.getParallelism() * SHARDS_PER_THREAD));
+        return reformat(code, reformatter, shardReformatter, MIN_PARALLEL_LENGTH, shardLength, pool);
+    }
+
+    static String reformat(String code, UnaryOperator<String> reformatter, int minParallelLength,
+                           int shardLength, ForkJoinPool pool) {
+        return reformat(code, reformatter, reformatter, minParallelLength, shardLength, pool);
+    }
+
+    static String reformat(String code, UnaryOperator<String> reformatter, UnaryOperator<String> shardReformatter,
+                           int minParallelLength, int shardLength, ForkJoinPool pool) {
+        if (code.length() < minParallelLength) {
+            return reformatter.apply(code);
+        }
+        String lineEnding = SourcePipeline.detectLineEnding(code);
+        String normalized = SourcePipeline.normalizeLineEndings(code);
+        List<String> shards = split(normalized, shardLength);
+        if (shards.size() < 2) {
+            return reformatter.apply(code);
+        }
+
+        List<ForkJoinTask<String>> tasks = new ArrayList<>(shards.size());
+        for (String shard : shards) {
+            tasks.add(pool.submit(() -> shardReformatter.apply(shard)));
+        }
+        StringBuilder out = new StringBuilder(code.length());
+        for (ForkJoinTask<String> task : tasks) {
+            if (out.length() > 0) out.append('\n');
+            out.append(task.join());
+        }
+        String result = out.toString();
+        return SourcePipeline.withLineEnding(result, lineEnding);
+    }
+
+    /**
+     * Splits normalized code into shards of about {@code shardLength} characters. A shard ends before a
+     * line terminator that separates two numbered lines; the terminator itself belongs to no shard.
+     */
+    static List<String> split(String code, int shardLength) {
+        List<String> shards = new ArrayList<>();
+        int start = 0;
+        int length = code.length();
+        while (length - start > shardLength) {
+            int end = findSplit(code, start + shardLength);
+            if (end < 0) {
+                break;
+            }
+            shards.add(code.substring(start, end));
+            start = end + 1;
+        }
+        shards.add(code.substring(start));
+        return shards;
+    }
+
+    /**
+     * Returns the index of the first line terminator at or after {@code from} whose previous and next
+     * lines both start with a line number, or -1 if there is none.
+     */
+    private static int findSplit(String code, int from) {
+        int length = code.length();
+        for (int i = code.indexOf('\n', from); i >= 0 && i + 1 < length; i = code.indexOf('\n', i + 1)) {
+            if (!isDigit(code.charAt(i + 1))) {
+                continue;
+            }
+            int lineStart = code.lastIndexOf('\n', i - 1) + 1;
+            if (lineStart < i && isDigit(code.charAt(lineStart))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
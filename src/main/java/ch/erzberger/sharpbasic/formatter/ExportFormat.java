@@ -0,0 +1,51 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import ch.erzberger.sharpbasic.antlr.SharpBasicParser;
+import ch.erzberger.sharpbasic.antlr.visitor.NiceTextVisitor;
+import ch.erzberger.sharpbasic.antlr.visitor.NormalizedTextVisitor;
+import ch.erzberger.sharpbasic.antlr.visitor.ShortTextVisitor;
+import ch.erzberger.sharpbasic.antlr.visitor.StrippedNormalizedTextVisitor;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+
+/**
+ * The renderings {@link SharpBasicExporter} produces from one parsed source.
+ */
+public enum ExportFormat {
+    /** As {@link SharpBasicCodeReformatter}. */
+    CANONICAL {
+        @Override
+        String visit(SharpBasicParser.ProgramContext tree, SharpBasicDialect dialect) {
+            return new NormalizedTextVisitor().visitProgram(tree);
+        }
+    },
+    /** As {@link SharpBasicStrippedReformatter}. */
+    STRIPPED {
+        @Override
+        String visit(SharpBasicParser.ProgramContext tree, SharpBasicDialect dialect) {
+            return new StrippedNormalizedTextVisitor().visitProgram(tree);
+        }
+    },
+    /** As {@link SharpBasicCompactReformatter}. */
+    COMPACT {
+        @Override
+        String visit(SharpBasicParser.ProgramContext tree, SharpBasicDialect dialect) {
+            return new ShortTextVisitor(dialect.getRegistry()).visitProgram(tree);
+        }
+    },
+    /** As {@link SharpBasicNiceReformatter}. */
+    NICE {
+        @Override
+        String visit(SharpBasicParser.ProgramContext tree, SharpBasicDialect dialect) {
+            return new NiceTextVisitor().visitProgram(tree);
+        }
+    };
+
+    /**
+     * Prints a tree with a new visitor; visitors keep state, the tree is only read.
+     */
+    abstract String visit(SharpBasicParser.ProgramContext tree, SharpBasicDialect dialect);
+
+    String render(ParsedSource source, SharpBasicDialect dialect) {
+        return source.restoreLineEndings(visit(source.tree, dialect));
+    }
+}
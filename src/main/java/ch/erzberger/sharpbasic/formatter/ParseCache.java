@@ -0,0 +1,134 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of {@link ParsedSource}s, shared by all reformatters. Switching between the canonical,
+ * nice, compact and stripped views of the same text parses it only once.
+ * <p>
+ * Entries are keyed by the source text and its dialect; the content hash of the text selects the
+ * bucket and a hit compares the text, which is far cheaper than parsing it. The cache is bounded by
+ * the estimated heap use of its entries rather than by their number, since one large program can
+ * weigh as much as thousands of small shards. A source heavier than the whole bound is not cached.
+ * <p>
+ * Parsing runs outside the lock, so a slow parse never blocks lookups of other sources. Hit, miss and
+ * eviction counters are kept so the effect can be checked.
+ */
+public final class ParseCache {
+    public static final long DEFAULT_MAX_WEIGHT = 32L * 1024 * 1024;
+
+    private static final ParseCache INSTANCE = new ParseCache(DEFAULT_MAX_WEIGHT);
+
+    private final long maxWeight;
+    private final Map<Key, ParsedSource> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache whose entries weigh at most {@code maxWeight} bytes together.
+     */
+    public ParseCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the cache shared by all reformatters.
+     */
+    @NotNull
+    public static ParseCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the parsed source, parsing it on a miss.
+     */
+    @NotNull
+    ParsedSource get(@NotNull String code, @NotNull SharpBasicDialect dialect) {
+        Key key = new Key(dialect, code);
+        synchronized (this) {
+            ParsedSource parsed = entries.get(key);
+            if (parsed != null) {
+                hits++;
+                return parsed;
+            }
+            misses++;
+        }
+        ParsedSource parsed = ParsedSource.parse(code, dialect);
+        put(key, parsed);
+        return parsed;
+    }
+
+    private synchronized void put(Key key, ParsedSource parsed) {
+        long entryWeight = weightOf(key, parsed);
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        ParsedSource previous = entries.put(key, parsed);
+        if (previous != null) {
+            // Parsed concurrently by another thread
+            weight -= weightOf(key, previous);
+        }
+        weight += entryWeight;
+        for (Iterator<Map.Entry<Key, ParsedSource>> it = entries.entrySet().iterator(); weight > maxWeight; ) {
+            Map.Entry<Key, ParsedSource> eldest = it.next();
+            it.remove();
+            weight -= weightOf(eldest.getKey(), eldest.getValue());
+            evictions++;
+        }
+    }
+
+    private static long weightOf(Key key, ParsedSource parsed) {
+        return 2L * key.code.length() + parsed.weight();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the estimated heap use of all entries in bytes.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return "ParseCache[size=" + entries.size() + ", weight=" + weight + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + ", hitRate=" + (lookups == 0 ? 0 : hits * 100 / lookups) + "%]";
+    }
+
+    private record Key(SharpBasicDialect dialect, String code) {
+    }
+}
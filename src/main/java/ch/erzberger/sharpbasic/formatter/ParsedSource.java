@@ -0,0 +1,108 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import ch.erzberger.sharpbasic.antlr.SharpBasicLexer;
+import ch.erzberger.sharpbasic.antlr.SharpBasicParser;
+import ch.erzberger.sharpbasic.antlr.SpaceNormalizer;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+/**
+ * A source after the steps all reformatters share: abbreviations expanded, spaces normalized, lexed
+ * and parsed with the ANTLR grammar. The visitors only read the tree, so one parsed source can be
+ * printed in every format, also from several threads.
+ * <p>
+ * Parsing uses the usual two stages: SLL prediction with a strategy that bails out at the first
+ * syntax error, which is enough for almost every program and much faster, and a full LL parse with
+ * the default error recovery only if that fails. The lexer, token stream and parser are kept per
+ * thread and reset for each source instead of being allocated anew.
+ *
+ * @see ParseCache
+ */
+final class ParsedSource {
+    // Rough heap use of a token, its terminal node and its share of the rule contexts
+    private static final int BYTES_PER_TOKEN = 200;
+
+    private static final ThreadLocal<Parsers> PARSERS = ThreadLocal.withInitial(Parsers::new);
+
+    final String lineEnding;
+    final String normalized;
+    final SharpBasicParser.ProgramContext tree;
+    private final int tokenCount;
+
+    private ParsedSource(String lineEnding, String normalized, SharpBasicParser.ProgramContext tree, int tokenCount) {
+        this.lineEnding = lineEnding;
+        this.normalized = normalized;
+        this.tree = tree;
+        this.tokenCount = tokenCount;
+    }
+
+    static ParsedSource parse(String code, SharpBasicDialect dialect) {
+        SourcePipeline.Expanded expanded = SourcePipeline.expand(code, dialect.getRegistry());
+        String normalized = SpaceNormalizer.forSource(expanded.text()).normalize();
+        Parsers parsers = PARSERS.get();
+        SharpBasicParser.ProgramContext tree = parsers.parse(normalized);
+        return new ParsedSource(expanded.lineEnding(), normalized, tree, parsers.tokenCount);
+    }
+
+    /**
+     * Returns the estimated heap use in bytes.
+     */
+    long weight() {
+        return 2L * normalized.length() + (long) BYTES_PER_TOKEN * tokenCount;
+    }
+
+    /**
+     * Converts the {@code \n} line endings of a visitor result back to the line ending of the source and
+     * drops the trailing one.
+     */
+    String restoreLineEndings(String result) {
+        return SourcePipeline.restoreLineEndings(result, lineEnding);
+    }
+
+    /**
+     * The ANTLR objects of one thread. Only the parse trees leave this class; they keep their tokens
+     * when the token stream is reset for the next source.
+     */
+    private static final class Parsers {
+        final CharStream empty = CharStreams.fromString("");
+        final SharpBasicLexer lexer = new SharpBasicLexer(empty);
+        final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        final SharpBasicParser parser = new SharpBasicParser(tokens);
+        final BailErrorStrategy bail = new BailErrorStrategy();
+        final DefaultErrorStrategy recover = new DefaultErrorStrategy();
+        int tokenCount;
+
+        SharpBasicParser.ProgramContext parse(String normalized) {
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(bail);
+            parser.removeErrorListeners();
+            lexer.setInputStream(CharStreams.fromString(normalized));
+            tokens.setTokenSource(lexer);
+            parser.setInputStream(tokens);
+            try {
+                return parser.program();
+            } catch (ParseCancellationException e) {
+                // A syntax error, or a construct SLL cannot decide: parse again with full LL
+                parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+                parser.setErrorHandler(recover);
+                parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+                tokens.seek(0);
+                parser.reset();
+                return parser.program();
+            } finally {
+                tokenCount = tokens.size();
+                // Do not keep the source alive until the next parse on this thread
+                lexer.setInputStream(empty);
+                tokens.setTokenSource(lexer);
+                parser.setInputStream(tokens);
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ch.erzberger.sharpbasic.formatter;
 
 import ch.erzberger.sharpbasic.SharpBasicFileType;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectSettings;
 import com.intellij.ide.scratch.ScratchFileService;
 import com.intellij.ide.scratch.ScratchRootType;
 import com.intellij.notification.Notification;
@@ -55,7 +56,7 @@ public class ReformatAsCompactPC1500Action extends AnAction {
             LOG.info("Current text length: " + currentText.length());
 
             // Reformat using compact rules
-            String reformattedText = SharpBasicCompactReformatter.reformat(currentText);
+            String reformattedText = SharpBasicCompactReformatter.reformatBatch(currentText, SharpBasicDialectSettings.getDialect(psiFile));
             LOG.info("Reformatted text length: " + reformattedText.length());
 
             final String finalReformattedText = reformattedText;
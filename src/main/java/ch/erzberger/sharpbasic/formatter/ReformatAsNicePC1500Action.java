@@ -1,6 +1,7 @@
 package ch.erzberger.sharpbasic.formatter;
 
 import ch.erzberger.sharpbasic.SharpBasicFileType;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectSettings;
 import com.intellij.ide.scratch.ScratchFileService;
 import com.intellij.ide.scratch.ScratchRootType;
 import com.intellij.notification.Notification;
@@ -50,7 +51,7 @@ public class ReformatAsNicePC1500Action extends AnAction {
             VirtualFile virtualFile = psiFile.getVirtualFile();
             String currentText = document.getText();
 
-            String reformattedText = SharpBasicNiceReformatter.reformat(currentText);
+            String reformattedText = SharpBasicNiceReformatter.reformatBatch(currentText, SharpBasicDialectSettings.getDialect(psiFile));
             final String finalReformattedText = reformattedText.replace("\r", "\n");
 
             if (virtualFile != null && !virtualFile.isWritable()) {
@@ -1,6 +1,7 @@
 package ch.erzberger.sharpbasic.formatter;
 
 import ch.erzberger.sharpbasic.SharpBasicFileType;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectSettings;
 import com.intellij.ide.scratch.ScratchFileService;
 import com.intellij.ide.scratch.ScratchRootType;
 import com.intellij.notification.Notification;
@@ -52,7 +53,7 @@ public class ReformatAsPC1500Action extends AnAction {
             LOG.info("Current text length: " + currentText.length());
 
             // Reformat using PC-1500 rules
-            String reformattedText = SharpBasicCodeReformatter.reformat(currentText);
+            String reformattedText = SharpBasicCodeReformatter.reformatBatch(currentText, SharpBasicDialectSettings.getDialect(psiFile));
             LOG.info("Reformatted text length: " + reformattedText.length());
 
             // Convert CR line endings back to the system default for display
@@ -1,6 +1,7 @@
 package ch.erzberger.sharpbasic.formatter;
 
 import ch.erzberger.sharpbasic.SharpBasicFileType;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectSettings;
 import com.intellij.ide.scratch.ScratchFileService;
 import com.intellij.ide.scratch.ScratchRootType;
 import com.intellij.notification.Notification;
@@ -47,7 +48,7 @@ public class ReformatAsRenumberedAction extends AnAction {
             VirtualFile virtualFile = psiFile.getVirtualFile();
             String currentText = document.getText();
 
-            String renumberedText = SharpBasicRenumReformatter.reformat(currentText);
+            String renumberedText = SharpBasicRenumReformatter.reformat(currentText, SharpBasicDialectSettings.getDialect(psiFile));
             final String finalText = renumberedText.replace("\r", "\n");
 
             if (virtualFile != null && !virtualFile.isWritable()) {
@@ -1,6 +1,7 @@
 package ch.erzberger.sharpbasic.formatter;
 
 import ch.erzberger.sharpbasic.SharpBasicFileType;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectSettings;
 import com.intellij.ide.scratch.ScratchFileService;
 import com.intellij.ide.scratch.ScratchRootType;
 import com.intellij.notification.Notification;
@@ -49,7 +50,7 @@ public class ReformatAsStrippedPC1500Action extends AnAction {
             VirtualFile virtualFile = psiFile.getVirtualFile();
             String currentText = document.getText();
 
-            String reformattedText = SharpBasicStrippedReformatter.reformat(currentText);
+            String reformattedText = SharpBasicStrippedReformatter.reformatBatch(currentText, SharpBasicDialectSettings.getDialect(psiFile));
             final String finalReformattedText = reformattedText.replace("\r", "\n");
 
             if (virtualFile != null && !virtualFile.isWritable()) {
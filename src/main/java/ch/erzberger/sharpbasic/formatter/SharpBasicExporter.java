@@ -0,0 +1,65 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Produces several renderings of one source for export to the device. The source is expanded,
+ * normalized, lexed and parsed once, and every requested format is printed from that one tree.
+ * Each output is identical to the one of the corresponding reformatter.
+ * <p>
+ * The visitors only read the tree, so the formats can be printed in parallel.
+ */
+public final class SharpBasicExporter {
+
+    private SharpBasicExporter() {
+    }
+
+    /**
+     * Renders the code in all formats.
+     *
+     * @param code the code to export
+     * @param dialect the dialect whose keywords the code uses
+     * @return the output of every format
+     */
+    public static Map<ExportFormat, String> export(String code, SharpBasicDialect dialect) {
+        return export(code, dialect, EnumSet.allOf(ExportFormat.class), false);
+    }
+
+    /**
+     * Renders the code in the requested formats.
+     *
+     * @param code the code to export
+     * @param dialect the dialect whose keywords the code uses
+     * @param formats the formats to produce
+     * @param parallel whether to print the formats on the common fork-join pool
+     * @return the output of each requested format, in the order of {@link ExportFormat}
+     */
+    public static Map<ExportFormat, String> export(String code, SharpBasicDialect dialect, Set<ExportFormat> formats,
+                                                   boolean parallel) {
+        ParsedSource source = ParseCache.getInstance().get(code, dialect);
+        Map<ExportFormat, String> outputs = new EnumMap<>(ExportFormat.class);
+        if (!parallel || formats.size() < 2) {
+            for (ExportFormat format : formats) {
+                outputs.put(format, format.render(source, dialect));
+            }
+            return outputs;
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Map<ExportFormat, ForkJoinTask<String>> tasks = new EnumMap<>(ExportFormat.class);
+        for (ExportFormat format : formats) {
+            tasks.put(format, pool.submit(() -> format.render(source, dialect)));
+        }
+        for (Map.Entry<ExportFormat, ForkJoinTask<String>> task : tasks.entrySet()) {
+            outputs.put(task.getKey(), task.getValue().join());
+        }
+        return outputs;
+    }
+}
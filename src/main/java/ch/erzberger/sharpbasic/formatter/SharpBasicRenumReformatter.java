@@ -1,13 +1,7 @@
 package ch.erzberger.sharpbasic.formatter;
 
-import ch.erzberger.sharpbasic.antlr.SharpBasicLexer;
-import ch.erzberger.sharpbasic.antlr.SharpBasicParser;
-import ch.erzberger.sharpbasic.antlr.SpaceNormalizer;
 import ch.erzberger.sharpbasic.antlr.visitor.RenumNormalizedTextVisitor;
-import ch.erzberger.sharpbasic.core.keyword.KeywordRegistry;
-import ch.erzberger.sharpbasic.core.preprocess.AbbreviationExpander;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
 
 /**
  * Renumbers Sharp BASIC line numbers to a canonical sequence.
@@ -15,8 +9,6 @@ import org.antlr.v4.runtime.CommonTokenStream;
  */
 public class SharpBasicRenumReformatter {
 
-    private static final KeywordRegistry REGISTRY = KeywordRegistry.forPc1500();
-
     /**
      * Renumbers the line numbers in the given Sharp BASIC code starting from 10, step 10.
      *
@@ -24,39 +16,18 @@ public class SharpBasicRenumReformatter {
      * @return the renumbered code
      */
     public static String reformat(String code) {
-        String lineEnding = detectLineEnding(code);
-        String expanded = expandSource(code);
-        String normalized = SpaceNormalizer.forSource(expanded).normalize();
-        SharpBasicLexer lexer = new SharpBasicLexer(CharStreams.fromString(normalized));
-        SharpBasicParser parser = new SharpBasicParser(new CommonTokenStream(lexer));
-        SharpBasicParser.ProgramContext tree = parser.program();
-        String result = new RenumNormalizedTextVisitor().visitProgram(tree);
-        return restoreLineEndings(result, lineEnding);
-    }
-
-    private static String expandSource(String source) {
-        String[] lines = source.replace("\r\n", "\n").replace("\r", "\n").split("\n", -1);
-        StringBuilder out = new StringBuilder();
-        for (int i = 0; i < lines.length; i++) {
-            if (i > 0) out.append('\n');
-            out.append(AbbreviationExpander.expand(lines[i], REGISTRY));
-        }
-        return out.toString();
+        return reformat(code, SharpBasicDialect.DEFAULT);
     }
 
-    private static String detectLineEnding(String code) {
-        if (code.contains("\r\n")) return "\r\n";
-        if (code.contains("\r")) return "\r";
-        return "\n";
-    }
-
-    private static String restoreLineEndings(String result, String lineEnding) {
-        if (!"\n".equals(lineEnding)) {
-            result = result.replace("\n", lineEnding);
-        }
-        if (result.endsWith(lineEnding)) {
-            result = result.substring(0, result.length() - lineEnding.length());
-        }
-        return result;
+    /**
+     * Renumbers the line numbers in the given Sharp BASIC code starting from 10, step 10.
+     *
+     * @param code the code to renumber
+     * @param dialect the dialect whose keywords the code uses
+     * @return the renumbered code
+     */
+    public static String reformat(String code, SharpBasicDialect dialect) {
+        ParsedSource source = ParseCache.getInstance().get(code, dialect);
+        return source.restoreLineEndings(new RenumNormalizedTextVisitor().visitProgram(source.tree));
     }
 }
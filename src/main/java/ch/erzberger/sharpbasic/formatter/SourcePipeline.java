@@ -0,0 +1,166 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import ch.erzberger.sharpbasic.core.keyword.KeywordRegistry;
+import ch.erzberger.sharpbasic.core.preprocess.AbbreviationExpander;
+
+/**
+ * The text stages around parsing, each a single pass over the source.
+ * <p>
+ * {@link #expand} detects the line ending, converts every line ending to {@code \n} and expands
+ * abbreviations line by line, writing into a buffer that is pre-sized to the source and reused by the
+ * thread. Abbreviations always end with a period, so only lines containing one go through the
+ * {@link AbbreviationExpander}; all other lines are copied straight from the source.
+ * <p>
+ * The line ending of a source is {@code \r\n} if it contains one anywhere, else {@code \r} if it contains
+ * one, else {@code \n}, so a mixed source comes back with one line ending throughout.
+ */
+final class SourcePipeline {
+    static final String LF = "\n";
+    static final String CRLF = "\r\n";
+    static final String CR = "\r";
+
+    // Larger buffers are not kept, so one huge source does not pin its memory to a pool thread
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+
+    /**
+     * A source with {@code \n} line endings and expanded abbreviations, and its original line ending.
+     */
+    record Expanded(String text, String lineEnding) {
+    }
+
+    private SourcePipeline() {
+    }
+
+    static Expanded expand(CharSequence code, KeywordRegistry registry) {
+        int length = code.length();
+        StringBuilder out = buffer(length);
+        boolean crlf = false;
+        boolean cr = false;
+        boolean dotted = false;
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            if (c == '.') {
+                dotted = true;
+            }
+            if (c != '\n' && c != '\r') {
+                continue;
+            }
+            appendLine(out, code, lineStart, i, dotted, registry);
+            out.append('\n');
+            if (c == '\r') {
+                if (i + 1 < length && code.charAt(i + 1) == '\n') {
+                    crlf = true;
+                    i++;
+                } else {
+                    cr = true;
+                }
+            }
+            lineStart = i + 1;
+            dotted = false;
+        }
+        appendLine(out, code, lineStart, length, dotted, registry);
+        String text = out.toString();
+        release(out);
+        return new Expanded(text, crlf ? CRLF : cr ? CR : LF);
+    }
+
+    private static void appendLine(StringBuilder out, CharSequence code, int start, int end, boolean dotted,
+                                   KeywordRegistry registry) {
+        if (dotted) {
+            out.append(AbbreviationExpander.expand(code.subSequence(start, end).toString(), registry));
+        } else {
+            out.append(code, start, end);
+        }
+    }
+
+    static String detectLineEnding(CharSequence code) {
+        boolean cr = false;
+        int length = code.length();
+        for (int i = 0; i < length; i++) {
+            if (code.charAt(i) == '\r') {
+                if (i + 1 < length && code.charAt(i + 1) == '\n') {
+                    return CRLF;
+                }
+                cr = true;
+            }
+        }
+        return cr ? CR : LF;
+    }
+
+    /**
+     * Converts {@code \r\n} and {@code \r} to {@code \n}; returns the code itself if it has neither.
+     */
+    static String normalizeLineEndings(String code) {
+        int first = code.indexOf('\r');
+        if (first < 0) {
+            return code;
+        }
+        int length = code.length();
+        StringBuilder out = buffer(length);
+        out.append(code, 0, first);
+        for (int i = first; i < length; i++) {
+            char c = code.charAt(i);
+            if (c == '\r') {
+                out.append('\n');
+                if (i + 1 < length && code.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            } else {
+                out.append(c);
+            }
+        }
+        String result = out.toString();
+        release(out);
+        return result;
+    }
+
+    /**
+     * Converts the {@code \n} line endings of a reformatted result to the given line ending.
+     */
+    static String withLineEnding(String result, String lineEnding) {
+        return convert(result, result.length(), lineEnding);
+    }
+
+    /**
+     * Converts the {@code \n} line endings of a reformatted result to the given line ending and drops the
+     * trailing one.
+     */
+    static String restoreLineEndings(String result, String lineEnding) {
+        int length = result.length();
+        return convert(result, length > 0 && result.charAt(length - 1) == '\n' ? length - 1 : length, lineEnding);
+    }
+
+    private static String convert(String result, int end, String lineEnding) {
+        if (LF.equals(lineEnding) || result.indexOf('\n') < 0) {
+            return end == result.length() ? result : result.substring(0, end);
+        }
+        StringBuilder out = buffer(end + end / 16);
+        int start = 0;
+        for (int i = result.indexOf('\n'); i >= 0 && i < end; i = result.indexOf('\n', start)) {
+            out.append(result, start, i).append(lineEnding);
+            start = i + 1;
+        }
+        out.append(result, start, end);
+        String converted = out.toString();
+        release(out);
+        return converted;
+    }
+
+    private static StringBuilder buffer(int capacity) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.ensureCapacity(capacity + 16);
+        return buffer;
+    }
+
+    private static void release(StringBuilder buffer) {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.set(new StringBuilder());
+        } else {
+            buffer.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ch.erzberger.sharpbasic.index;
+
+import ch.erzberger.sharpbasic.core.keyword.KeywordCategory;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.ui.SimpleListCellRenderer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Asks for a keyword or an extension and lists the files of the project that use it.
+ * The answer comes from {@link SharpBasicKeywordIndex}, so no file is read.
+ */
+public class FindFilesByKeywordAction extends AnAction {
+    private static final String TITLE = "Find Files Using Keyword";
+
+    private static final Map<String, KeywordCategory> CATEGORIES = new LinkedHashMap<>();
+
+    static {
+        CATEGORIES.put("Any CE-150 keyword (graphics and printer)", KeywordCategory.CE150_EXTENSION);
+        CATEGORIES.put("Any CE-158 keyword (communications)", KeywordCategory.CE158_EXTENSION);
+        CATEGORIES.put("Any PC-1600 keyword", KeywordCategory.PC1600);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        if (DumbService.isDumb(project)) {
+            DumbService.getInstance(project).showDumbModeNotification("Files can be searched when indexing is finished");
+            return;
+        }
+
+        List<String> choices = new ArrayList<>(CATEGORIES.keySet());
+        choices.addAll(allKeywordNames());
+        String choice = Messages.showEditableChooseDialog("Keyword or extension:", TITLE, null,
+                choices.toArray(String[]::new), choices.get(0), null);
+        if (choice == null || choice.isBlank()) {
+            return;
+        }
+
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        KeywordCategory category = CATEGORIES.get(choice);
+        String keyword = choice.trim().toUpperCase();
+        List<VirtualFile> files = new ArrayList<>(category != null
+                ? SharpBasicKeywordIndex.findFilesUsing(category, scope)
+                : SharpBasicKeywordIndex.findFilesUsing(keyword, scope));
+        if (files.isEmpty()) {
+            Messages.showInfoMessage(project, "No file uses " + (category != null ? choice : keyword) + ".", TITLE);
+            return;
+        }
+        files.sort(Comparator.comparing(VirtualFile::getPath));
+
+        JBPopupFactory.getInstance().createPopupChooserBuilder(files)
+                .setTitle(files.size() + (files.size() == 1 ? " file uses " : " files use ")
+                        + (category != null ? choice : keyword))
+                .setRenderer(SimpleListCellRenderer.create("", VirtualFile::getPresentableUrl))
+                .setNamerForFiltering(VirtualFile::getName)
+                .setItemChosenCallback(file -> new OpenFileDescriptor(project, file).navigate(true))
+                .createPopup()
+                .showCenteredInCurrentWindow(project);
+    }
+
+    /**
+     * Returns the canonical names of the keywords of all dialects, sorted.
+     */
+    private static List<String> allKeywordNames() {
+        TreeSet<String> names = new TreeSet<>();
+        for (SharpBasicDialect dialect : SharpBasicDialect.values()) {
+            KeywordTrie keywords = KeywordTrie.forDialect(dialect);
+            for (int id = 0; id < keywords.size(); id++) {
+                names.add(keywords.nameOf(id));
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+}
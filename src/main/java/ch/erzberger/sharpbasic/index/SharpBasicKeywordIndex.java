@@ -0,0 +1,155 @@
+package ch.erzberger.sharpbasic.index;
+
+import ch.erzberger.sharpbasic.SharpBasicFileType;
+import ch.erzberger.sharpbasic.core.keyword.KeywordCategory;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectDetector;
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
+import ch.erzberger.sharpbasic.lexer.SharpBasicLexerAdapter;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.indexing.ScalarIndexExtension;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the keywords each file uses, by canonical name ({@code GPRINT} also for {@code GP.}),
+ * and of the keyword categories, so that the files using CE-150 or CE-158 commands are found
+ * without reading them.
+ * <p>
+ * The keys of a file are collected in one pass of the lexer, which also detects the dialect from the
+ * content, because an index cannot depend on project settings.
+ */
+public class SharpBasicKeywordIndex extends ScalarIndexExtension<String> {
+    public static final ID<String, Void> NAME = ID.create("sharpBasic.keywords");
+
+    // Category keys cannot collide with keyword names, which contain no colon
+    private static final String CATEGORY_PREFIX = "category:";
+
+    @NotNull
+    @Override
+    public ID<String, Void> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Void, FileContent> getIndexer() {
+        return content -> keysOf(content.getContentAsText());
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(SharpBasicFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    /**
+     * Returns the keyword names and category keys used in the text.
+     * <p>
+     * The text is lexed once with the keywords of all dialects, like {@link SharpBasicDialectDetector} does.
+     * If that finds a PC-1600 keyword, the file is PC-1600 and these are its tokens. Otherwise the tokens are
+     * the same as with the default dialect, but an abbreviation can stand for a different keyword there, so
+     * every keyword token is also resolved with the default keywords.
+     */
+    @NotNull
+    static Map<String, Void> keysOf(@NotNull CharSequence text) {
+        KeywordTrie all = KeywordTrie.forDialect(SharpBasicDialect.PC1600);
+        KeywordTrie defaults = KeywordTrie.forDialect(SharpBasicDialect.DEFAULT);
+        boolean[] usedAll = new boolean[all.size()];
+        boolean[] usedDefaults = new boolean[defaults.size()];
+        boolean pc1600 = false;
+
+        SharpBasicLexerAdapter lexer = new SharpBasicLexerAdapter(SharpBasicDialect.PC1600);
+        lexer.start(text);
+        for (IElementType type; (type = lexer.getTokenType()) != null; lexer.advance()) {
+            if (type != SharpBasicTypes.KEYWORD) {
+                continue;
+            }
+            int id = all.resolve(text, lexer.getTokenStart(), lexer.getTokenEnd());
+            if (id != KeywordTrie.NO_KEYWORD) {
+                usedAll[id] = true;
+                pc1600 |= all.categoryOf(id) == KeywordCategory.PC1600;
+            }
+            if (!pc1600) {
+                int defaultId = defaults.resolve(text, lexer.getTokenStart(), lexer.getTokenEnd());
+                if (defaultId != KeywordTrie.NO_KEYWORD) {
+                    usedDefaults[defaultId] = true;
+                }
+            }
+        }
+        return pc1600 ? keysOf(all, usedAll) : keysOf(defaults, usedDefaults);
+    }
+
+    @NotNull
+    private static Map<String, Void> keysOf(@NotNull KeywordTrie keywords, boolean[] used) {
+        Map<String, Void> keys = new HashMap<>();
+        for (int id = 0; id < used.length; id++) {
+            if (used[id]) {
+                keys.put(keywords.nameOf(id), null);
+                keys.put(categoryKey(keywords.categoryOf(id)), null);
+            }
+        }
+        return keys;
+    }
+
+    @NotNull
+    static String categoryKey(@NotNull KeywordCategory category) {
+        return CATEGORY_PREFIX + category.name();
+    }
+
+    /**
+     * Returns the files in the scope that use a keyword, given by its canonical name.
+     */
+    @NotNull
+    public static Collection<VirtualFile> findFilesUsing(@NotNull String keyword, @NotNull GlobalSearchScope scope) {
+        return FileBasedIndex.getInstance().getContainingFiles(NAME, keyword, scope);
+    }
+
+    /**
+     * Returns the files in the scope that use any keyword of a category.
+     */
+    @NotNull
+    public static Collection<VirtualFile> findFilesUsing(@NotNull KeywordCategory category,
+                                                         @NotNull GlobalSearchScope scope) {
+        return FileBasedIndex.getInstance().getContainingFiles(NAME, categoryKey(category), scope);
+    }
+
+    /**
+     * Returns the keyword names and category keys recorded for a file.
+     */
+    @NotNull
+    public static Set<String> getKeys(@NotNull VirtualFile file, @NotNull Project project) {
+        return FileBasedIndex.getInstance().getFileData(NAME, file, project).keySet();
+    }
+}
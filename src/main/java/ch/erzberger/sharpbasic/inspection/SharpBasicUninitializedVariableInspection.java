@@ -0,0 +1,41 @@
+package ch.erzberger.sharpbasic.inspection;
+
+import ch.erzberger.sharpbasic.analysis.SharpBasicDataflow;
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.impl.SharpBasicPsiImplUtil;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Reports reads of variables that no path assigns before, e.g. a misspelt name. The analysis is
+ * shared with the other variable inspections and cached per file.
+ */
+public class SharpBasicUninitializedVariableInspection extends LocalInspectionTool {
+    @Override
+    public ProblemDescriptor @Nullable [] checkFile(@NotNull PsiFile file, @NotNull InspectionManager manager,
+                                                    boolean isOnTheFly) {
+        if (!(file instanceof SharpBasicFile basicFile)) {
+            return null;
+        }
+        List<PsiElement> elements = SharpBasicDataflow.of(basicFile).getReadsBeforeAssignment();
+        ProblemDescriptor[] problems = new ProblemDescriptor[elements.size()];
+        for (int i = 0; i < problems.length; i++) {
+            PsiElement element = elements.get(i);
+            // Without the blanks the lexer folded into the token
+            String name = SharpBasicPsiImplUtil.withoutBlanks(element.getText());
+            TextRange range = SharpBasicPsiImplUtil.significantRange(element.getText());
+            problems[i] = manager.createProblemDescriptor(element, range, "Variable " + name + " is read before it is assigned",
+                    ProblemHighlightType.GENERIC_ERROR_OR_WARNING, isOnTheFly);
+        }
+        return problems;
+    }
+}
@@ -0,0 +1,61 @@
+package ch.erzberger.sharpbasic.inspection;
+
+import ch.erzberger.sharpbasic.analysis.SharpBasicControlFlow;
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineDeclaration;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineNumberOwner;
+import ch.erzberger.sharpbasic.psi.SharpBasicStatementKind;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reports numbered lines that no path from an entry line reaches. One pass over the lines of the
+ * cached control-flow graph; the graph itself is built in linear time.
+ * <p>
+ * Lines with only DATA or REM are not reported: DATA is read, not executed.
+ */
+public class SharpBasicUnreachableLineInspection extends LocalInspectionTool {
+    private static final Set<SharpBasicStatementKind> PASSIVE =
+            EnumSet.of(SharpBasicStatementKind.DATA, SharpBasicStatementKind.REM);
+
+    @Override
+    public ProblemDescriptor @Nullable [] checkFile(@NotNull PsiFile file, @NotNull InspectionManager manager,
+                                                    boolean isOnTheFly) {
+        if (!(file instanceof SharpBasicFile basicFile)) {
+            return null;
+        }
+        SharpBasicControlFlow flow = SharpBasicControlFlow.of(basicFile);
+        BitSet reachable = flow.getReachableNodes();
+        List<ProblemDescriptor> problems = new ArrayList<>();
+        for (int line = 0; line < flow.getLineCount(); line++) {
+            int reached = reachable.nextSetBit(flow.firstNodeOf(line));
+            if (reached >= 0 && reached < flow.endNodeOf(line)) {
+                continue;
+            }
+            SharpBasicLineDeclaration declaration = flow.getLine(line);
+            int number = declaration.getLineNumber();
+            if (number == SharpBasicLineNumberOwner.NO_LINE_NUMBER
+                    || PASSIVE.containsAll(declaration.getStatementKinds())) {
+                continue;
+            }
+            PsiElement anchor = declaration.getNameIdentifier();
+            problems.add(manager.createProblemDescriptor(anchor != null ? anchor : declaration,
+                    "Line " + number + " is never executed", isOnTheFly, LocalQuickFix.EMPTY_ARRAY,
+                    ProblemHighlightType.LIKE_UNUSED_SYMBOL));
+        }
+        return problems.toArray(ProblemDescriptor.EMPTY_ARRAY);
+    }
+}
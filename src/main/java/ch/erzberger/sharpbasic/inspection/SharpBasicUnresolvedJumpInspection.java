@@ -0,0 +1,87 @@
+package ch.erzberger.sharpbasic.inspection;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicJumpElement;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineTable;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiReference;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reports GOTO, GOSUB and IF ... THEN targets that are not lines of the file, and marks computed
+ * targets such as {@code GOTO A*10}, which cannot be checked, and number targets that are not line
+ * numbers, such as {@code GOTO 1.5}, with a weak warning.
+ * <p>
+ * Each jump is checked on its own against the cached line table of the file, a binary search in
+ * its sorted line numbers, so only the visited jumps cost anything.
+ */
+public class SharpBasicUnresolvedJumpInspection extends LocalInspectionTool {
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(@NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        if (!(holder.getFile() instanceof SharpBasicFile file)) {
+            return PsiElementVisitor.EMPTY_VISITOR;
+        }
+        return new PsiElementVisitor() {
+            @Override
+            public void visitElement(@NotNull PsiElement element) {
+                if (element instanceof SharpBasicJumpElement jump) {
+                    checkJump(jump, file.getLineTable(), holder);
+                }
+            }
+        };
+    }
+
+    private static void checkJump(@NotNull SharpBasicJumpElement jump, @NotNull SharpBasicLineTable lines,
+                                  @NotNull ProblemsHolder holder) {
+        String problem = findProblem(jump, lines);
+        if (problem != null) {
+            register(jump, problem, holder);
+            return;
+        }
+        boolean literal = jump.getJumpTarget() != SharpBasicJumpElement.NO_TARGET || jump.getJumpLabel() != null;
+        PsiReference reference = jump.getReference();
+        if (!literal && reference != null) {
+            // A number literal that is not a line number, e.g. GOTO 1.5
+            String message = "Jump target " + reference.getCanonicalText() + " is not a line number";
+            holder.registerProblem(reference, message, ProblemHighlightType.WEAK_WARNING);
+            return;
+        }
+        PsiElement computed = jump.getComputedTarget();
+        if (computed != null) {
+            holder.registerProblem(computed, "Computed jump target cannot be checked",
+                    ProblemHighlightType.WEAK_WARNING);
+        }
+    }
+
+    /**
+     * Returns the error for a jump to a line number or label that is not in the file, or null.
+     */
+    @Nullable
+    static String findProblem(@NotNull SharpBasicJumpElement jump, @NotNull SharpBasicLineTable lines) {
+        int target = jump.getJumpTarget();
+        if (target != SharpBasicJumpElement.NO_TARGET) {
+            return lines.containsLine(target) ? null : "Line " + target + " does not exist";
+        }
+        String label = jump.getJumpLabel();
+        if (label != null) {
+            return lines.findLabel(label) != null ? null : "Label \"" + label + "\" does not exist";
+        }
+        return null;
+    }
+
+    private static void register(@NotNull SharpBasicJumpElement jump, @NotNull String message,
+                                 @NotNull ProblemsHolder holder) {
+        PsiReference reference = jump.getReference();
+        if (reference != null) {
+            holder.registerProblem(reference, message, ProblemHighlightType.GENERIC_ERROR_OR_WARNING);
+        } else {
+            holder.registerProblem(jump, message);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ch.erzberger.sharpbasic.inspection;
+
+import ch.erzberger.sharpbasic.analysis.SharpBasicDataflow;
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.impl.SharpBasicPsiImplUtil;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Reports LET assignments whose value is overwritten or never read.
+ */
+public class SharpBasicUnusedAssignmentInspection extends LocalInspectionTool {
+    @Override
+    public ProblemDescriptor @Nullable [] checkFile(@NotNull PsiFile file, @NotNull InspectionManager manager,
+                                                    boolean isOnTheFly) {
+        if (!(file instanceof SharpBasicFile basicFile)) {
+            return null;
+        }
+        List<PsiElement> elements = SharpBasicDataflow.of(basicFile).getUnusedAssignments();
+        ProblemDescriptor[] problems = new ProblemDescriptor[elements.size()];
+        for (int i = 0; i < problems.length; i++) {
+            PsiElement element = elements.get(i);
+            // Without the blanks the lexer folded into the token
+            String name = SharpBasicPsiImplUtil.withoutBlanks(element.getText());
+            TextRange range = SharpBasicPsiImplUtil.significantRange(element.getText());
+            problems[i] = manager.createProblemDescriptor(element, range, "The value assigned to " + name + " is never read",
+                    ProblemHighlightType.LIKE_UNUSED_SYMBOL, isOnTheFly);
+        }
+        return problems;
+    }
+}
@@ -0,0 +1,252 @@
+package ch.erzberger.sharpbasic.lexer;
+
+import ch.erzberger.sharpbasic.core.keyword.BasicKeyword;
+import ch.erzberger.sharpbasic.core.keyword.KeywordCategory;
+import ch.erzberger.sharpbasic.core.keyword.KeywordRegistry;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact trie over every spelling a {@link KeywordRegistry} accepts as a keyword: full names
+ * (e.g. PRINT, INKEY$, POKE#) and dotted abbreviations (e.g. P., PR., PO.).
+ * <p>
+ * The lexer needs longest-prefix matches at arbitrary offsets inside a token. Walking the trie over the
+ * lexer buffer answers that in one pass bounded by the longest keyword, without creating substrings.
+ * The trie is compiled once from the registry and is immutable afterwards.
+ * <p>
+ * Each spelling also resolves to a keyword id that identifies its canonical keyword, so P. and PRINT
+ * have the same id. Ids are dense ints, which lets callers compare keywords by identity.
+ */
+public final class KeywordTrie {
+    // Keywords only consist of uppercase letters, digits, the $ and # suffixes and the abbreviation dot
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789$#.";
+    private static final int ALPHABET_SIZE = ALPHABET.length();
+    private static final byte[] SYMBOLS = new byte[128];
+
+    static {
+        Arrays.fill(SYMBOLS, (byte) -1);
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            SYMBOLS[ALPHABET.charAt(i)] = (byte) i;
+        }
+    }
+
+    private static final int ROOT = 0;
+
+    /**
+     * Id returned for text that is not a keyword.
+     */
+    public static final int NO_KEYWORD = -1;
+
+    private static final Map<SharpBasicDialect, KeywordTrie> BY_DIALECT = new EnumMap<>(SharpBasicDialect.class);
+
+    // children[node * ALPHABET_SIZE + symbol] is the child node, or ROOT if there is none
+    private int[] children;
+    // Keyword id of the spelling ending at a node, or NO_KEYWORD
+    private int[] keywordIds;
+    private int nodeCount;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<KeywordCategory> categories = new ArrayList<>();
+    private final Map<String, Integer> idsByName = new HashMap<>();
+
+    private KeywordTrie() {
+        children = new int[64 * ALPHABET_SIZE];
+        keywordIds = new int[64];
+        Arrays.fill(keywordIds, NO_KEYWORD);
+        nodeCount = 1;
+    }
+
+    /**
+     * Returns the shared trie for the keyword registry of a dialect, compiled on first use.
+     */
+    @NotNull
+    public static synchronized KeywordTrie forDialect(@NotNull SharpBasicDialect dialect) {
+        return BY_DIALECT.computeIfAbsent(dialect, d -> of(d.getRegistry()));
+    }
+
+    /**
+     * Compiles the trie for all keywords of the given registry.
+     * Candidate spellings are derived from the keyword names and abbreviations and kept only if
+     * the registry itself accepts them, so the trie matches exactly what {@link KeywordRegistry#isKeyword}
+     * accepts for uppercase input.
+     */
+    @NotNull
+    public static KeywordTrie of(@NotNull KeywordRegistry registry) {
+        KeywordTrie trie = new KeywordTrie();
+        for (BasicKeyword keyword : registry.allKeywords()) {
+            String name = keyword.name();
+            trie.addIfKeyword(registry, name);
+            trie.addIfKeyword(registry, name + ".");
+
+            // Dotted abbreviations are prefixes of the name without its $ or # suffix (POKE# -> PO.)
+            String base = name.endsWith("$") || name.endsWith("#") ? name.substring(0, name.length() - 1) : name;
+            for (int length = 1; length <= base.length(); length++) {
+                trie.addIfKeyword(registry, base.substring(0, length) + ".");
+            }
+            if (keyword.hasAbbreviation()) {
+                trie.addIfKeyword(registry, keyword.abbreviation() + ".");
+            }
+        }
+        trie.trim();
+        return trie;
+    }
+
+    private void addIfKeyword(KeywordRegistry registry, String spelling) {
+        if (registry.isKeyword(spelling)) {
+            registry.lookup(spelling).ifPresent(keyword -> add(spelling, idOf(keyword)));
+        }
+    }
+
+    private int idOf(BasicKeyword keyword) {
+        return idsByName.computeIfAbsent(keyword.name(), name -> {
+            names.add(name);
+            categories.add(keyword.category());
+            return names.size() - 1;
+        });
+    }
+
+    private void add(String spelling, int id) {
+        int node = ROOT;
+        for (int i = 0; i < spelling.length(); i++) {
+            int symbol = symbol(spelling.charAt(i));
+            if (symbol < 0) {
+                // Cannot be part of an identifier token, so the lexer never asks for it
+                return;
+            }
+            int slot = node * ALPHABET_SIZE + symbol;
+            if (children[slot] == ROOT) {
+                // newNode() may replace the children array, so it must run before the store
+                int child = newNode();
+                children[slot] = child;
+            }
+            node = children[slot];
+        }
+        keywordIds[node] = id;
+    }
+
+    private int newNode() {
+        if (nodeCount == keywordIds.length) {
+            keywordIds = Arrays.copyOf(keywordIds, nodeCount * 2);
+            Arrays.fill(keywordIds, nodeCount, keywordIds.length, NO_KEYWORD);
+            children = Arrays.copyOf(children, nodeCount * 2 * ALPHABET_SIZE);
+        }
+        return nodeCount++;
+    }
+
+    private void trim() {
+        keywordIds = Arrays.copyOf(keywordIds, nodeCount);
+        children = Arrays.copyOf(children, nodeCount * ALPHABET_SIZE);
+    }
+
+    private static int symbol(char c) {
+        return c < SYMBOLS.length ? SYMBOLS[c] : -1;
+    }
+
+    /**
+     * Returns true if the whole text is a keyword spelling (case-sensitive).
+     */
+    public boolean contains(@NotNull CharSequence text) {
+        return text.length() > 0 && longestMatch(text, 0, text.length(), text.length(), -1, false) == text.length();
+    }
+
+    /**
+     * Returns the length of the longest keyword that starts at {@code start} and ends at or before
+     * {@code end}, is at least {@code minLength} long and is not exactly {@code excludedLength} long.
+     *
+     * @param text           the text to match against, typically the lexer buffer
+     * @param start          offset of the first character of the keyword
+     * @param end            offset after the last character the keyword may use
+     * @param minLength      shorter keywords are ignored
+     * @param excludedLength a keyword of exactly this length is ignored, or -1
+     * @param ignoreCase     if true, lowercase letters match their uppercase keyword letters;
+     *                       otherwise only uppercase text matches (PC-1500 keywords are case-sensitive)
+     * @return the keyword length, or 0 if there is no such keyword
+     */
+    public int longestMatch(@NotNull CharSequence text, int start, int end, int minLength, int excludedLength,
+                            boolean ignoreCase) {
+        int node = ROOT;
+        int longest = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (ignoreCase && c >= 'a' && c <= 'z') {
+                c = (char) (c - ('a' - 'A'));
+            }
+            int symbol = symbol(c);
+            if (symbol < 0) {
+                break;
+            }
+            node = children[node * ALPHABET_SIZE + symbol];
+            if (node == ROOT) {
+                break;
+            }
+            int length = i - start + 1;
+            if (keywordIds[node] != NO_KEYWORD && length >= minLength && length != excludedLength) {
+                longest = length;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Resolves the keyword spelled by {@code text[start, end)} to its keyword id (case-sensitive).
+     * Blanks inside the range are skipped, so spaced keywords like {@code P R I N T} resolve as well.
+     *
+     * @return the keyword id, or {@link #NO_KEYWORD} if the text is not exactly one keyword
+     */
+    public int resolve(@NotNull CharSequence text, int start, int end) {
+        int node = ROOT;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '\t') {
+                continue;
+            }
+            int symbol = symbol(c);
+            if (symbol < 0) {
+                return NO_KEYWORD;
+            }
+            node = children[node * ALPHABET_SIZE + symbol];
+            if (node == ROOT) {
+                return NO_KEYWORD;
+            }
+        }
+        return keywordIds[node];
+    }
+
+    /**
+     * Returns the keyword id of a canonical keyword name (e.g. PRINT), or {@link #NO_KEYWORD}.
+     */
+    public int idOfName(@NotNull String name) {
+        Integer id = idsByName.get(name);
+        return id != null ? id : NO_KEYWORD;
+    }
+
+    /**
+     * Returns the canonical keyword name for a keyword id.
+     */
+    @NotNull
+    public String nameOf(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Returns the category (PC-1500 core or an extension) of the keyword with the given id.
+     */
+    @NotNull
+    public KeywordCategory categoryOf(int id) {
+        return categories.get(id);
+    }
+
+    /**
+     * Returns the number of distinct keywords; ids range from 0 to {@code size() - 1}.
+     */
+    public int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,234 @@
+package ch.erzberger.sharpbasic.lexer;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of the tokens of complete lines, shared by all {@link PreprocessingSharpBasicLexer}s.
+ * <p>
+ * Every line is lexed from {@link PreprocessingSharpBasicLexer#LINE_START_STATE}, so its tokens only depend
+ * on its own text. The cache is therefore keyed by line content: the highlighting lexer and the parser
+ * lexer share each other's work on the same document, and after an edit only the changed lines miss.
+ * <p>
+ * The lines are spread over independently locked segments by their hash, so lexers running on different
+ * threads (highlighting, parsing, indexing, inspections) rarely wait for each other. Each segment is an
+ * LRU of its share of the capacity, so eviction order is only approximately global.
+ * <p>
+ * Hit and miss counters are kept so the effect can be checked on large files.
+ * <p>
+ * The same line lexes differently in different dialects, so there is one cache per dialect.
+ */
+public final class LineTokenCache {
+    public static final int DEFAULT_CAPACITY = 16_384;
+
+    // Power of two, so a segment is selected by masking the hash
+    private static final int MAX_SEGMENTS = 16;
+
+    private static final Map<SharpBasicDialect, LineTokenCache> INSTANCES = new EnumMap<>(SharpBasicDialect.class);
+
+    static {
+        for (SharpBasicDialect dialect : SharpBasicDialect.values()) {
+            INSTANCES.put(dialect, new LineTokenCache(DEFAULT_CAPACITY));
+        }
+    }
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache holding at most {@code capacity} lines.
+     */
+    public LineTokenCache(int capacity) {
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 2 <= capacity) {
+            count *= 2;
+        }
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the cache shared by the highlighter and the parser for the default dialect.
+     */
+    @NotNull
+    public static LineTokenCache getInstance() {
+        return getInstance(SharpBasicDialect.DEFAULT);
+    }
+
+    /**
+     * Returns the cache shared by the highlighter and the parser for files of the given dialect.
+     */
+    @NotNull
+    public static LineTokenCache getInstance(@NotNull SharpBasicDialect dialect) {
+        return INSTANCES.get(dialect);
+    }
+
+    /**
+     * Looks up the tokens of a line.
+     *
+     * @param text   buffer holding the line text, including its line terminator
+     * @param length length of the line in the buffer
+     * @param hash   hash of the line text as computed by {@link #hash(int, char)}
+     * @return the cached tokens, or null on a miss
+     */
+    @Nullable
+    LineTokens get(char[] text, int length, int hash) {
+        LineTokens tokens = segmentFor(hash).get(text, length, hash);
+        if (tokens != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return tokens;
+    }
+
+    /**
+     * Stores the tokens of a line; the text is copied.
+     */
+    void put(char[] text, int length, int hash, @NotNull LineTokens tokens) {
+        segmentFor(hash).put(new Key(Arrays.copyOf(text, length), length, hash), tokens);
+    }
+
+    private Segment segmentFor(int hash) {
+        // Line hashes differ mostly in their low bits; mix in the high bits as well
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Adds a character to a line hash.
+     */
+    static int hash(int hash, char c) {
+        return 31 * hash + c;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes all lines and resets the counters.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        long hits = getHits();
+        long misses = getMisses();
+        long lookups = hits + misses;
+        return "LineTokenCache[size=" + size() + ", hits=" + hits + ", misses=" + misses
+                + ", hitRate=" + (lookups == 0 ? 0 : hits * 100 / lookups) + "%]";
+    }
+
+    /**
+     * The tokens of one line: type, end offset relative to the line start, and lexer state at the token start.
+     * Tokens are contiguous, so every token starts where the previous one ended and the first one at the line start.
+     */
+    static final class LineTokens {
+        final IElementType[] types;
+        final int[] ends;
+        final int[] states;
+
+        LineTokens(IElementType[] types, int[] ends, int[] states) {
+            this.types = types;
+            this.ends = ends;
+            this.states = states;
+        }
+
+        int size() {
+            return types.length;
+        }
+    }
+
+    /**
+     * One independently locked part of the cache, an LRU of its share of the capacity.
+     */
+    private static final class Segment {
+        private final Map<Key, LineTokens> lines;
+        // Reused for lookups, guarded by this
+        private final Key probe = new Key(null, 0, 0);
+
+        Segment(int capacity) {
+            this.lines = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, LineTokens> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized LineTokens get(char[] text, int length, int hash) {
+            probe.text = text;
+            probe.length = length;
+            probe.hash = hash;
+            LineTokens tokens = lines.get(probe);
+            probe.text = null;
+            return tokens;
+        }
+
+        synchronized void put(Key key, LineTokens tokens) {
+            lines.put(key, tokens);
+        }
+
+        synchronized int size() {
+            return lines.size();
+        }
+
+        synchronized void clear() {
+            lines.clear();
+        }
+    }
+
+    private static final class Key {
+        char[] text;
+        int length;
+        int hash;
+
+        Key(char[] text, int length, int hash) {
+            this.text = text;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && length == other.length
+                    && Arrays.equals(text, 0, length, other.text, 0, length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
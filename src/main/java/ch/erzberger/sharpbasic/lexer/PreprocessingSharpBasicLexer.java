@@ -1,106 +1,170 @@
 package ch.erzberger.sharpbasic.lexer;
 
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
 import com.intellij.lexer.LexerBase;
+import com.intellij.psi.TokenType;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.util.text.CharArrayCharSequence;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Preprocessing wrapper for SharpBasicLexer that removes whitespace outside of strings and comments.
  * This implements the authentic Sharp PC-1500 behavior where keywords can have spaces between letters.
  * For example: "P R I N T" is recognized as "PRINT", "R  E M" is recognized as "REM".
+ * <p>
+ * {@link #getState()} exposes the complete lexer state at the start of each token, so lexing can be
+ * restarted from any token. The first token of every line always has {@link #LINE_START_STATE}, which
+ * lets the editor highlighter re-lex only the edited line instead of the whole document.
+ * <p>
+ * Tokens are produced lazily as {@link #advance()} asks for them. Only the line being lexed is
+ * preprocessed, into buffers that are reused for the next line, so memory is bounded by the longest
+ * line rather than the document size and the first token is available after reading a single line.
+ * <p>
+ * Lines lexed from {@link #LINE_START_STATE} are looked up in the shared {@link LineTokenCache} first,
+ * so the highlighter and the parser only lex each distinct line once.
  */
 public class PreprocessingSharpBasicLexer extends LexerBase {
+    /** State at the start of a line: nothing from previous lines influences the tokens that follow. */
+    public static final int LINE_START_STATE = 0;
+    /** A token was already produced on this line, so numbers are no longer line numbers. */
+    public static final int MID_LINE = 1;
+    /** The JFlex lexer is in its IN_COMMENT state (after REM, ' or an unclosed "). */
+    public static final int IN_COMMENT = 2;
+    /** The preprocessor keeps whitespace because it is inside a comment. */
+    public static final int RAW_TEXT = 4;
+    /** The last character kept by the preprocessor was R; a following E and M form a (spaced) REM. */
+    public static final int PENDING_REM_R = 8;
+    /** The last characters kept by the preprocessor were R and E; a following M forms a (spaced) REM. */
+    public static final int PENDING_REM_RE = 16;
+
+    private static final int PENDING_REM_MASK = PENDING_REM_R | PENDING_REM_RE;
+
+    private static final int INITIAL_LINE_CAPACITY = 256;
+    private static final int INITIAL_RECORD_CAPACITY = 64;
+
+    // Character classes driving the preprocessor state machine (ASCII table, everything else is OTHER)
+    private static final byte OTHER = 0;
+    private static final byte BLANK = 1;
+    private static final byte QUOTE = 2;
+    private static final byte APOSTROPHE = 3;
+    private static final byte LETTER_R = 4;
+    private static final byte LETTER_E = 5;
+    private static final byte LETTER_M = 6;
+    private static final byte LINE_END = 7;
+
+    private static final byte[] CHAR_CLASSES = new byte[128];
+
+    static {
+        CHAR_CLASSES[' '] = BLANK;
+        CHAR_CLASSES['\t'] = BLANK;
+        CHAR_CLASSES['"'] = QUOTE;
+        CHAR_CLASSES['\''] = APOSTROPHE;
+        // PC-1500 is case-sensitive: only an uppercase REM starts a comment
+        CHAR_CLASSES['R'] = LETTER_R;
+        CHAR_CLASSES['E'] = LETTER_E;
+        CHAR_CLASSES['M'] = LETTER_M;
+        CHAR_CLASSES['\n'] = LINE_END;
+        CHAR_CLASSES['\r'] = LINE_END;
+    }
+
+    // Preprocessor modes
+    private static final int CODE = 0;
+    private static final int QUOTED = 1;
+    private static final int COMMENT = 2;
+
     private final SharpBasicLexer lexer;
+    private final LineTokenCache cache;
     private CharSequence originalBuffer;
-    private int originalStart;
     private int originalEnd;
 
-    private List<TokenInfo> tokens;
-    private int currentTokenIndex;
+    // The current line: its start, end and a copy of its text with the hash used by the cache
+    private int lineStart;
+    private int lineEnd;
+    private char[] source = new char[INITIAL_LINE_CAPACITY];
+    private int sourceLength;
+    private int sourceHash;
+
+    // Tokens of the current line if it was found in the cache, and the next one to return
+    private LineTokenCache.LineTokens cachedLine;
+    private int cachedIndex;
+
+    // Tokens of the current line recorded while lexing it, to be stored in the cache at its end
+    private boolean recording;
+    private int recordedCount;
+    private IElementType[] recordedTypes = new IElementType[INITIAL_RECORD_CAPACITY];
+    private int[] recordedEnds = new int[INITIAL_RECORD_CAPACITY];
+    private int[] recordedStates = new int[INITIAL_RECORD_CAPACITY];
+
+    // The preprocessed current line: its initial state and its text together with
+    // the original offset and the preprocessor state in front of every kept character
+    private int lineInitialState;
+    private int lineLength;
+    private char[] lineText = new char[INITIAL_LINE_CAPACITY];
+    private int[] lineToOriginal = new int[INITIAL_LINE_CAPACITY];
+    private byte[] lineState = new byte[INITIAL_LINE_CAPACITY];
+
+    private IElementType tokenType;
+    private int tokenStart;
+    private int tokenEnd;
+    private int tokenState;
 
     public PreprocessingSharpBasicLexer() {
+        this(SharpBasicDialect.DEFAULT);
+    }
+
+    /**
+     * Creates a lexer that recognizes the keywords of the given dialect.
+     */
+    public PreprocessingSharpBasicLexer(@NotNull SharpBasicDialect dialect) {
+        this(dialect, LineTokenCache.getInstance(dialect));
+    }
+
+    PreprocessingSharpBasicLexer(@NotNull LineTokenCache cache) {
+        this(SharpBasicDialect.DEFAULT, cache);
+    }
+
+    private PreprocessingSharpBasicLexer(@NotNull SharpBasicDialect dialect, @NotNull LineTokenCache cache) {
         this.lexer = new SharpBasicLexer((java.io.Reader) null);
+        this.lexer.setKeywords(KeywordTrie.forDialect(dialect));
+        this.cache = cache;
     }
 
     @Override
     public void start(@NotNull CharSequence buffer, int startOffset, int endOffset, int initialState) {
         this.originalBuffer = buffer;
-        this.originalStart = startOffset;
         this.originalEnd = endOffset;
-        this.tokens = new ArrayList<>();
-        this.currentTokenIndex = 0;
-
-        // Preprocess the buffer: remove whitespace except in strings and comments
-        String substring = buffer.subSequence(startOffset, endOffset).toString();
-        PreprocessResult result = preprocessBuffer(substring);
+        this.tokenEnd = startOffset;
 
-        // Lex the preprocessed buffer
-        lexer.reset(result.text, 0, result.text.length(), initialState);
-
-        try {
-            int currentOriginalPos = startOffset;
-            IElementType tokenType;
-
-            while ((tokenType = lexer.advance()) != null) {
-                int preprocStart = lexer.getTokenStart();
-                int preprocEnd = lexer.getTokenEnd();
-
-                // Map back to original positions
-                int origStart = currentOriginalPos;
-                int origEnd;
-
-                // Find the original end position
-                if (preprocEnd < result.preprocessedToOriginal.length) {
-                    origEnd = startOffset + result.preprocessedToOriginal[preprocEnd - 1] + 1;
-                } else {
-                    origEnd = endOffset;
-                }
-
-                // Ensure the next token starts where this one ends
-                currentOriginalPos = origEnd;
-
-                tokens.add(new TokenInfo(tokenType, origStart, origEnd));
-            }
-        } catch (java.io.IOException e) {
-            // Handle exception
-        }
+        startLine(startOffset, initialState);
+        locateToken();
     }
 
     @Override
     public int getState() {
-        return 0;
+        return tokenState;
     }
 
     @Override
     public IElementType getTokenType() {
-        if (currentTokenIndex < tokens.size()) {
-            return tokens.get(currentTokenIndex).type;
-        }
-        return null;
+        return tokenType;
     }
 
     @Override
     public int getTokenStart() {
-        if (currentTokenIndex < tokens.size()) {
-            return tokens.get(currentTokenIndex).start;
-        }
-        return originalEnd;
+        return tokenStart;
     }
 
     @Override
     public int getTokenEnd() {
-        if (currentTokenIndex < tokens.size()) {
-            return tokens.get(currentTokenIndex).end;
-        }
-        return originalEnd;
+        return tokenEnd;
     }
 
     @Override
     public void advance() {
-        currentTokenIndex++;
+        locateToken();
     }
 
     @NotNull
@@ -115,179 +179,255 @@ public class PreprocessingSharpBasicLexer extends LexerBase {
     }
 
     /**
-     * Preprocesses the buffer by removing whitespace outside of strings and comments.
+     * Pulls the next token from the JFlex lexer, moving on to the next line when the current one is done.
+     * Tokens are contiguous in the original buffer: each one starts where the previous one ended,
+     * so whitespace removed by the preprocessor belongs to the token that follows it.
      */
-    private PreprocessResult preprocessBuffer(String input) {
-        StringBuilder result = new StringBuilder();
-        int[] preprocToOrig = new int[input.length()];
-
-        boolean inComment = false;
-        int preprocessedPos = 0;
-
-        for (int i = 0; i < input.length(); ) {
-            char c = input.charAt(i);
-
-            // Check for string start/end
-            // PC-1500: Open double quote is also a comment marker
-            if (c == '"' && !inComment) {
-                // Look ahead to see if there's a matching closing quote on this line
-                boolean hasClosingQuote = false;
-                for (int j = i + 1; j < input.length(); j++) {
-                    char nextC = input.charAt(j);
-                    if (nextC == '\n' || nextC == '\r') break;
-                    if (nextC == '"') {
-                        // Check for escaped quote ""
-                        if (j + 1 < input.length() && input.charAt(j + 1) == '"') {
-                            j++; // Skip escaped quote
-                        } else {
-                            hasClosingQuote = true;
-                            break;
-                        }
+    private void locateToken() {
+        int start = tokenEnd;
+        try {
+            while (true) {
+                if (cachedLine != null) {
+                    if (cachedIndex < cachedLine.size()) {
+                        tokenType = cachedLine.types[cachedIndex];
+                        tokenStart = start;
+                        tokenEnd = lineStart + cachedLine.ends[cachedIndex];
+                        tokenState = cachedLine.states[cachedIndex];
+                        cachedIndex++;
+                        return;
                     }
-                }
-
-                if (!hasClosingQuote) {
-                    inComment = true;
-                    result.append(c);
-                    preprocToOrig[preprocessedPos++] = i;
-                    i++;
-                    continue;
-                } else {
-                    // It's a closed string. Preserve everything until the closing quote.
-                    result.append(c);
-                    preprocToOrig[preprocessedPos++] = i;
-                    i++;
-                    while (i < input.length()) {
-                        char sc = input.charAt(i);
-                        result.append(sc);
-                        preprocToOrig[preprocessedPos++] = i;
-                        if (sc == '"') {
-                            if (i + 1 < input.length() && input.charAt(i + 1) == '"') {
-                                // Escaped quote
-                                i++;
-                                result.append(input.charAt(i));
-                                preprocToOrig[preprocessedPos++] = i;
-                            } else {
-                                // Closing quote
-                                break;
-                            }
-                        }
-                        i++;
+                    if (lineEnd >= originalEnd) {
+                        break;
                     }
-                    i++;
+                    startLine(lineEnd, LINE_START_STATE);
                     continue;
                 }
-            }
-
-            // Check for comment start (apostrophe only)
-            // REM is handled by the underlying lexer as a keyword that enters comment mode
-            if (!inComment) {
-                // Check for REM keyword (with or without spaces)
-                // PC-1500 is case-sensitive: only recognize uppercase REM
-                if (c == 'R') {  // Only uppercase R
-                    // Check for "R E M" with spaces OR "REM" without spaces
-                    // PC-1500 is case-sensitive: only uppercase REM is a keyword
-                    int pos = i + 1;
-                    while (pos < input.length() && (input.charAt(pos) == ' ' || input.charAt(pos) == '\t')) {
-                        pos++;
-                    }
-                    if (pos < input.length() && input.charAt(pos) == 'E') {  // Only uppercase E
-                        int ePos = pos;
-                        pos++;
-                        while (pos < input.length() && (input.charAt(pos) == ' ' || input.charAt(pos) == '\t')) {
-                            pos++;
-                        }
-                        if (pos < input.length() && input.charAt(pos) == 'M') {  // Only uppercase M
-                            // Found "R E M" with spaces - collapse to "REM"
-                            result.append("REM");
-                            preprocToOrig[preprocessedPos++] = i;
-                            preprocToOrig[preprocessedPos++] = ePos;
-                            preprocToOrig[preprocessedPos++] = pos;
-                            // Enter comment mode - preserve everything after REM
-                            inComment = true;
-                            i = pos + 1;
-                            continue;
-                        }
-                    } else if (pos == i + 1 && pos < input.length() && input.charAt(pos) == 'E') {
-                        // "RE" without space after R
-                        if (pos + 1 < input.length() && input.charAt(pos + 1) == 'M') {
-                            // Found "REM" without spaces - just pass through and enter comment mode
-                            result.append("REM");
-                            preprocToOrig[preprocessedPos++] = i;
-                            preprocToOrig[preprocessedPos++] = pos;
-                            preprocToOrig[preprocessedPos++] = pos + 1;
-                            inComment = true;
-                            i = pos + 2;
-                            continue;
-                        }
-                    }
+                // The state must be captured before advance() so that it describes the token start
+                int lexerState = (lexer.isAtLineStart() ? 0 : MID_LINE)
+                        | (lexer.yystate() == SharpBasicLexer.IN_COMMENT ? IN_COMMENT : 0);
+                IElementType type = lexer.advance();
+                if (type != null) {
+                    int preprocStart = lexer.getTokenStart();
+                    int preprocEnd = lexer.getTokenEnd();
+                    tokenType = type;
+                    tokenStart = start;
+                    // The last token of a line also covers whitespace trailing it
+                    tokenEnd = preprocEnd < lineLength ? lineToOriginal[preprocEnd - 1] + 1 : lineEnd;
+                    tokenState = lexerState | lineState[preprocStart];
+                    record();
+                    return;
                 }
-
-                // Check for apostrophe comment
-                if (c == '\'') {
-                    inComment = true;
-                    result.append(c);
-                    preprocToOrig[preprocessedPos++] = i;
-                    i++;
-                    continue;
+                if (start < lineEnd) {
+                    // Only whitespace was left at the end of the buffer; nothing reached the lexer
+                    tokenType = TokenType.WHITE_SPACE;
+                    tokenStart = start;
+                    tokenEnd = lineEnd;
+                    tokenState = lineInitialState;
+                    record();
+                    return;
+                }
+                if (recording) {
+                    recording = false;
+                    cache.put(source, sourceLength, sourceHash, new LineTokenCache.LineTokens(
+                            Arrays.copyOf(recordedTypes, recordedCount),
+                            Arrays.copyOf(recordedEnds, recordedCount),
+                            Arrays.copyOf(recordedStates, recordedCount)));
                 }
+                if (lineEnd >= originalEnd) {
+                    break;
+                }
+                startLine(lineEnd, LINE_START_STATE);
             }
+        } catch (IOException e) {
+            // Cannot happen: the lexer reads from the preprocessed line buffer
+        }
+        tokenType = null;
+        tokenStart = originalEnd;
+        tokenEnd = originalEnd;
+        tokenState = LINE_START_STATE;
+    }
 
-            // Check for line terminator (ends comment)
-            if ((c == '\n' || c == '\r') && inComment) {
-                inComment = false;
-                result.append(c);
-                preprocToOrig[preprocessedPos++] = i;
-                i++;
-                continue;
+    /**
+     * Reads the line starting at {@code start} (up to and including its line terminator) and prepares
+     * its tokens: from the cache if the line starts in {@link #LINE_START_STATE} and was lexed before,
+     * by preprocessing and lexing it otherwise. Every character of the buffer is read exactly once.
+     */
+    private void startLine(int start, int initialState) {
+        CharSequence input = originalBuffer;
+        int end = originalEnd;
+        int hash = 0;
+        int length = 0;
+        int i = start;
+        while (i < end) {
+            char c = input.charAt(i++);
+            if (length == source.length) {
+                source = Arrays.copyOf(source, length * 2);
             }
-
-            // Inside string or comment: preserve everything
-            if (inComment) {
-                result.append(c);
-                preprocToOrig[preprocessedPos++] = i;
-                i++;
-                continue;
+            source[length++] = c;
+            hash = LineTokenCache.hash(hash, c);
+            if (c == '\n') {
+                break;
             }
-
-            // Outside string and comment: skip whitespace
-            if (c == ' ' || c == '\t') {
-                i++;
-                continue;
+            if (c == '\r') {
+                if (i < end && input.charAt(i) == '\n') {
+                    i++;
+                    if (length == source.length) {
+                        source = Arrays.copyOf(source, length * 2);
+                    }
+                    source[length++] = '\n';
+                    hash = LineTokenCache.hash(hash, '\n');
+                }
+                break;
             }
-
-            // Everything else: keep it
-            result.append(c);
-            preprocToOrig[preprocessedPos++] = i;
-            i++;
         }
+        lineStart = start;
+        lineEnd = i;
+        sourceLength = length;
+        sourceHash = hash;
+
+        cachedLine = null;
+        recording = false;
+        if (initialState == LINE_START_STATE) {
+            cachedLine = cache.get(source, sourceLength, sourceHash);
+            if (cachedLine != null) {
+                cachedIndex = 0;
+                return;
+            }
+            recording = true;
+            recordedCount = 0;
+        }
+        preprocessLine(initialState);
+    }
 
-        // Trim array
-        int[] finalPreprocToOrig = new int[preprocessedPos];
-        System.arraycopy(preprocToOrig, 0, finalPreprocToOrig, 0, preprocessedPos);
-
-        return new PreprocessResult(result.toString(), finalPreprocToOrig);
+    /**
+     * Appends the current token to the tokens recorded for the cache.
+     */
+    private void record() {
+        if (!recording) {
+            return;
+        }
+        if (recordedCount == recordedTypes.length) {
+            int capacity = recordedCount * 2;
+            recordedTypes = Arrays.copyOf(recordedTypes, capacity);
+            recordedEnds = Arrays.copyOf(recordedEnds, capacity);
+            recordedStates = Arrays.copyOf(recordedStates, capacity);
+        }
+        recordedTypes[recordedCount] = tokenType;
+        recordedEnds[recordedCount] = tokenEnd - lineStart;
+        recordedStates[recordedCount] = tokenState;
+        recordedCount++;
     }
 
-    private static class PreprocessResult {
-        final String text;
-        final int[] preprocessedToOriginal;
+    /**
+     * Preprocesses the current line by removing whitespace outside of strings and comments,
+     * and resets the JFlex lexer onto it.
+     * The preprocessor part of {@code initialState} (comment mode and a pending R / RE of a spaced REM)
+     * is resumed, and the preprocessor state in front of every kept character is recorded.
+     * <p>
+     * This is a single pass over the copy of the line:
+     * <ul>
+     *   <li>CODE drops blanks and tracks R, E so that a following M ends a (spaced) REM.</li>
+     *   <li>A double quote enters QUOTED. On the PC-1500 it starts a string if it is closed on the same
+     *       line (a doubled quote is an escaped quote) and a comment otherwise. Both keep their text
+     *       verbatim, so there is no need to look ahead: a closing quote returns to CODE, and reaching
+     *       the end of the line means it was a comment all along.</li>
+     *   <li>An apostrophe or REM enters COMMENT, which keeps everything up to the end of the line.</li>
+     * </ul>
+     */
+    private void preprocessLine(int initialState) {
+        char[] input = source;
+        int end = sourceLength;
+        int offset = lineStart;
+        lineInitialState = initialState;
+        lineLength = 0;
+
+        int mode = (initialState & RAW_TEXT) != 0 ? COMMENT : CODE;
+        int pendingRem = mode == CODE ? initialState & PENDING_REM_MASK : 0;
+
+        int i = 0;
+        while (i < end) {
+            char c = input[i];
+            byte charClass = c < CHAR_CLASSES.length ? CHAR_CLASSES[c] : OTHER;
+
+            // Line terminator: ends any string or comment, and the line
+            if (charClass == LINE_END) {
+                int state = mode == CODE ? pendingRem : RAW_TEXT;
+                keep(c, offset + i++, state);
+                if (c == '\r' && i < end && input[i] == '\n') {
+                    keep('\n', offset + i++, state);
+                }
+                break;
+            }
 
-        PreprocessResult(String text, int[] preprocessedToOriginal) {
-            this.text = text;
-            this.preprocessedToOriginal = preprocessedToOriginal;
+            if (mode == CODE) {
+                switch (charClass) {
+                    case BLANK:
+                        // Removed; a pending R / RE of a spaced REM survives
+                        break;
+                    case QUOTE:
+                        keep(c, offset + i, pendingRem);
+                        pendingRem = 0;
+                        mode = QUOTED;
+                        break;
+                    case APOSTROPHE:
+                        keep(c, offset + i, pendingRem);
+                        pendingRem = 0;
+                        mode = COMMENT;
+                        break;
+                    case LETTER_R:
+                        keep(c, offset + i, pendingRem);
+                        pendingRem = PENDING_REM_R;
+                        break;
+                    case LETTER_E:
+                        keep(c, offset + i, pendingRem);
+                        pendingRem = pendingRem == PENDING_REM_R ? PENDING_REM_RE : 0;
+                        break;
+                    case LETTER_M:
+                        keep(c, offset + i, pendingRem);
+                        // The underlying lexer recognizes REM itself as a keyword that enters comment mode
+                        mode = pendingRem == PENDING_REM_RE ? COMMENT : CODE;
+                        pendingRem = 0;
+                        break;
+                    default:
+                        keep(c, offset + i, pendingRem);
+                        pendingRem = 0;
+                        break;
+                }
+            } else {
+                // Tokens only start inside QUOTED text if it turns out to be a comment, so it is raw text too
+                keep(c, offset + i, RAW_TEXT);
+                if (mode == QUOTED && charClass == QUOTE) {
+                    if (i + 1 < end && input[i + 1] == '"') {
+                        // Escaped quote
+                        ++i;
+                        keep('"', offset + i, RAW_TEXT);
+                    } else {
+                        // Closing quote
+                        mode = CODE;
+                    }
+                }
+            }
+            i++;
         }
-    }
 
-    private static class TokenInfo {
-        final IElementType type;
-        final int start;
-        final int end;
+        int lexicalState = (initialState & IN_COMMENT) != 0 ? SharpBasicLexer.IN_COMMENT : SharpBasicLexer.YYINITIAL;
+        lexer.reset(new CharArrayCharSequence(lineText, 0, lineLength), 0, lineLength, lexicalState);
+        lexer.setAtLineStart((initialState & MID_LINE) == 0);
+    }
 
-        TokenInfo(IElementType type, int start, int end) {
-            this.type = type;
-            this.start = start;
-            this.end = end;
+    /**
+     * Appends a kept character to the preprocessed line, growing the line buffers if necessary.
+     */
+    private void keep(char c, int originalOffset, int state) {
+        if (lineLength == lineText.length) {
+            int capacity = lineText.length * 2;
+            lineText = Arrays.copyOf(lineText, capacity);
+            lineToOriginal = Arrays.copyOf(lineToOriginal, capacity);
+            lineState = Arrays.copyOf(lineState, capacity);
         }
+        lineText[lineLength] = c;
+        lineToOriginal[lineLength] = originalOffset;
+        lineState[lineLength] = (byte) state;
+        lineLength++;
     }
 }
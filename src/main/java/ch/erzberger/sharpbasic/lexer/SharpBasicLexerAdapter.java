@@ -1,6 +1,6 @@
 package ch.erzberger.sharpbasic.lexer;
 
-import com.intellij.lexer.Lexer;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
 import com.intellij.lexer.LexerBase;
 import com.intellij.psi.tree.IElementType;
 import org.jetbrains.annotations.NotNull;
@@ -14,7 +14,11 @@ public class SharpBasicLexerAdapter extends LexerBase {
     private final PreprocessingSharpBasicLexer lexer;
 
     public SharpBasicLexerAdapter() {
-        this.lexer = new PreprocessingSharpBasicLexer();
+        this(SharpBasicDialect.DEFAULT);
+    }
+
+    public SharpBasicLexerAdapter(@NotNull SharpBasicDialect dialect) {
+        this.lexer = new PreprocessingSharpBasicLexer(dialect);
     }
 
     @Override
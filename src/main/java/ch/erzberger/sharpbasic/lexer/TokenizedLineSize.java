@@ -0,0 +1,75 @@
+package ch.erzberger.sharpbasic.lexer;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.lexer.Lexer;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Size of a program line as the device stores it, computed from the lexer tokens of its source.
+ * <p>
+ * The device tokenizes a line when it is entered: each keyword becomes a two-byte code, whatever
+ * its spelling (PRINT, P. and P R I N T are the same code), and blanks outside strings and REM are
+ * dropped. Every other character takes one byte. The line number and the terminator are stored
+ * separately and do not count towards the limit, nor do source-only {@code //} and {@code #} comments.
+ */
+public final class TokenizedLineSize {
+    /**
+     * The most bytes a tokenized line may have.
+     */
+    public static final int MAX_BYTES = 80;
+
+    private static final int KEYWORD_BYTES = 2;
+
+    private TokenizedLineSize() {
+    }
+
+    /**
+     * Returns the tokenized size in bytes of one line of source, with or without its terminator.
+     */
+    public static int of(@NotNull CharSequence line, @NotNull SharpBasicDialect dialect) {
+        Lexer lexer = new SharpBasicLexerAdapter(dialect);
+        lexer.start(line, 0, line.length(), PreprocessingSharpBasicLexer.LINE_START_STATE);
+        int size = 0;
+        for (IElementType type; (type = lexer.getTokenType()) != null; lexer.advance()) {
+            size += sizeOf(type, lexer.getState(), line, lexer.getTokenStart(), lexer.getTokenEnd());
+        }
+        return size;
+    }
+
+    private static int sizeOf(@NotNull IElementType type, int state, @NotNull CharSequence text, int start, int end) {
+        if (type == SharpBasicTypes.KEYWORD) {
+            return KEYWORD_BYTES;
+        }
+        if (type == SharpBasicTypes.LINE_NUMBER || type == SharpBasicTypes.LINE_TERMINATOR
+                || type == SharpBasicTypes.EXTRA_COMMENT || type == TokenType.WHITE_SPACE) {
+            return 0;
+        }
+        if ((state & PreprocessingSharpBasicLexer.RAW_TEXT) != 0) {
+            // Comment text after REM or ' is stored as typed, blanks included
+            return end - start;
+        }
+        // Tokens start where the previous one ended, so blanks dropped in front of a token are part
+        // of its text, and the last token of a line also covers the blanks trailing it
+        while (start < end && isBlank(text.charAt(start))) start++;
+        while (end > start && isBlank(text.charAt(end - 1))) end--;
+        if (type == SharpBasicTypes.STRING) {
+            // Blanks inside the quotes are kept
+            return end - start;
+        }
+        // The preprocessor joins spaced tokens such as 1 0 0, so only the kept characters count
+        int size = 0;
+        for (int i = start; i < end; i++) {
+            if (!isBlank(text.charAt(i))) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
@@ -0,0 +1,47 @@
+package ch.erzberger.sharpbasic.navigation;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicLineBody;
+import ch.erzberger.sharpbasic.psi.stubs.SharpBasicLabelIndex;
+import ch.erzberger.sharpbasic.psi.stubs.SharpBasicLineNumberIndex;
+import com.intellij.navigation.ChooseByNameContributorEx;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.FindSymbolParameters;
+import com.intellij.util.indexing.IdFilter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Go to Symbol for labels ({@code "A"}) and line numbers ({@code 1000}). Served from the stub
+ * indexes, so closed files are not parsed.
+ */
+public class SharpBasicGotoSymbolContributor implements ChooseByNameContributorEx {
+    private static final List<StubIndexKey<String, SharpBasicLineBody>> KEYS =
+            List.of(SharpBasicLabelIndex.KEY, SharpBasicLineNumberIndex.KEY);
+
+    @Override
+    public void processNames(@NotNull Processor<? super String> processor, @NotNull GlobalSearchScope scope,
+                             @Nullable IdFilter filter) {
+        for (StubIndexKey<String, SharpBasicLineBody> key : KEYS) {
+            if (!StubIndex.getInstance().processAllKeys(key, processor, scope, filter)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void processElementsWithName(@NotNull String name, @NotNull Processor<? super NavigationItem> processor,
+                                        @NotNull FindSymbolParameters parameters) {
+        for (StubIndexKey<String, SharpBasicLineBody> key : KEYS) {
+            if (!StubIndex.getInstance().processElements(key, name, parameters.getProject(),
+                    parameters.getSearchScope(), parameters.getIdFilter(), SharpBasicLineBody.class, processor)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ch.erzberger.sharpbasic.parser;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import ch.erzberger.sharpbasic.psi.impl.SharpBasicIdentifierImpl;
+import com.intellij.lang.ASTFactory;
+import com.intellij.psi.impl.source.tree.LeafElement;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Creates identifier tokens as {@link SharpBasicIdentifierImpl}, so variables can be searched.
+ * All other nodes are created by the platform.
+ */
+public class SharpBasicASTFactory extends ASTFactory {
+
+    @Nullable
+    @Override
+    public LeafElement createLeaf(@NotNull IElementType type, @NotNull CharSequence text) {
+        return type == SharpBasicTypes.IDENTIFIER ? new SharpBasicIdentifierImpl(type, text) : null;
+    }
+}
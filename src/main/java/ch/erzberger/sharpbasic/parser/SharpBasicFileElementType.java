@@ -0,0 +1,64 @@
+package ch.erzberger.sharpbasic.parser;
+
+import ch.erzberger.sharpbasic.SharpBasicLanguage;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
+import ch.erzberger.sharpbasic.lexer.SharpBasicLexerAdapter;
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.PsiBuilder;
+import com.intellij.lang.PsiBuilderFactory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.impl.source.DummyHolder;
+import com.intellij.psi.stubs.PsiFileStub;
+import com.intellij.psi.tree.IStubFileElementType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * File element type that lexes and parses a file with the keywords of its dialect.
+ * The dialect is resolved once per parse, not per token.
+ * <p>
+ * The file is the root of the stub tree; its only stubs are the line bodies.
+ */
+public class SharpBasicFileElementType extends IStubFileElementType<PsiFileStub<SharpBasicFile>> {
+    // Increment when the grammar or the stubs change
+    private static final int STUB_VERSION = 3;
+
+    public SharpBasicFileElementType() {
+        super(SharpBasicLanguage.INSTANCE);
+    }
+
+    @Override
+    public int getStubVersion() {
+        return STUB_VERSION;
+    }
+
+    @NotNull
+    @Override
+    public String getExternalId() {
+        return "sharpBasic.FILE";
+    }
+
+    @Override
+    protected ASTNode doParseContents(@NotNull ASTNode chameleon, @NotNull PsiElement psi) {
+        SharpBasicDialect dialect = dialectOf(psi);
+        PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(psi.getProject(), chameleon,
+                new SharpBasicLexerAdapter(dialect), getLanguage(), chameleon.getChars());
+        builder.putUserData(SharpBasicParserUtil.KEYWORDS, KeywordTrie.forDialect(dialect));
+        return new SharpBasicParser().parse(this, builder).getFirstChildNode();
+    }
+
+    /**
+     * Returns the dialect of the file containing the element. A reparsed line sits in a dummy holder
+     * whose context is the original file.
+     */
+    @NotNull
+    static SharpBasicDialect dialectOf(@NotNull PsiElement psi) {
+        PsiFile file = psi.getContainingFile();
+        if (file instanceof DummyHolder holder && holder.getContext() != null) {
+            file = holder.getContext().getContainingFile();
+        }
+        return file instanceof SharpBasicFile basicFile ? basicFile.getDialect() : SharpBasicDialect.DEFAULT;
+    }
+}
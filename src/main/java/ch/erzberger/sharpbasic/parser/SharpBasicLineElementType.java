@@ -0,0 +1,71 @@
+package ch.erzberger.sharpbasic.parser;
+
+import ch.erzberger.sharpbasic.SharpBasicLanguage;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
+import ch.erzberger.sharpbasic.lexer.SharpBasicLexerAdapter;
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.Language;
+import com.intellij.lang.PsiBuilder;
+import com.intellij.lang.PsiBuilderFactory;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.IReparseableElementType;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Element type of a program line.
+ * <p>
+ * Lines are lexically and syntactically independent, so a line is a lazily parsed chameleon: its
+ * subtree is only built when it is accessed, and an edit inside a line reparses just that line
+ * instead of the whole file.
+ * <p>
+ * An edit that adds or removes a line terminator changes the line structure, so such text is not
+ * reparseable here and the platform falls back to reparsing the enclosing file.
+ */
+public class SharpBasicLineElementType extends IReparseableElementType {
+
+    public SharpBasicLineElementType(@NotNull @NonNls String debugName) {
+        super(debugName, SharpBasicLanguage.INSTANCE);
+    }
+
+    /**
+     * Factory used by the generated element type holder.
+     */
+    public static IElementType create(@NotNull @NonNls String debugName) {
+        return new SharpBasicLineElementType(debugName);
+    }
+
+    @Override
+    protected ASTNode doParseContents(@NotNull ASTNode chameleon, @NotNull PsiElement psi) {
+        SharpBasicDialect dialect = SharpBasicFileElementType.dialectOf(psi);
+        PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(psi.getProject(), chameleon,
+                new SharpBasicLexerAdapter(dialect), getLanguage(), chameleon.getChars());
+        builder.putUserData(SharpBasicParserUtil.KEYWORDS, KeywordTrie.forDialect(dialect));
+        return new SharpBasicParser().parse(this, builder).getFirstChildNode();
+    }
+
+    /**
+     * Accepts exactly one line: text that ends with its line terminator and contains no other one.
+     * Documents use {@code \n} only. The last line of a file may lack a terminator, but deleting the
+     * terminator of any other line looks the same, so both are left to a full reparse.
+     */
+    @Override
+    public boolean isParsable(@Nullable ASTNode parent, @NotNull CharSequence buffer,
+                              @NotNull Language fileLanguage, @NotNull Project project) {
+        int last = buffer.length() - 1;
+        if (last < 0 || buffer.charAt(last) != '\n') {
+            return false;
+        }
+        for (int i = 0; i < last; i++) {
+            char c = buffer.charAt(i);
+            if (c == '\n' || c == '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
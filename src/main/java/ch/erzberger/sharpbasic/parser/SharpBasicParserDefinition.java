@@ -1,6 +1,5 @@
 package ch.erzberger.sharpbasic.parser;
 
-import ch.erzberger.sharpbasic.SharpBasicLanguage;
 import ch.erzberger.sharpbasic.lexer.SharpBasicLexerAdapter;
 import ch.erzberger.sharpbasic.psi.SharpBasicFile;
 import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
@@ -20,7 +19,7 @@ import org.jetbrains.annotations.NotNull;
  * Parser definition for Sharp BASIC language.
  */
 public class SharpBasicParserDefinition implements ParserDefinition {
-    public static final IFileElementType FILE = new IFileElementType(SharpBasicLanguage.INSTANCE);
+    public static final IFileElementType FILE = new SharpBasicFileElementType();
 
     public static final TokenSet WHITE_SPACES = TokenSet.create(
             com.intellij.psi.TokenType.WHITE_SPACE
@@ -73,9 +72,7 @@ public class SharpBasicParserDefinition implements ParserDefinition {
     @NotNull
     @Override
     public PsiElement createElement(ASTNode node) {
-        // This will be handled by the generated parser types
-        // For now, use a basic wrapper
-        return new com.intellij.extapi.psi.ASTWrapperPsiElement(node);
+        return SharpBasicTypes.Factory.createElement(node);
     }
 
     @NotNull
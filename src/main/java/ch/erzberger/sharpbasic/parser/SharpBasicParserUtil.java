@@ -1,10 +1,11 @@
 package ch.erzberger.sharpbasic.parser;
 
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
 import com.intellij.lang.PsiBuilder;
 import com.intellij.lang.parser.GeneratedParserUtilBase;
-import ch.erzberger.sharpbasic.core.keyword.BasicKeyword;
-import ch.erzberger.sharpbasic.core.keyword.KeywordRegistry;
 import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.openapi.util.Key;
 
 /**
  * External parser utilities for Sharp BASIC grammar.
@@ -12,24 +13,66 @@ import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
  */
 public class SharpBasicParserUtil extends GeneratedParserUtilBase {
 
-    private static final KeywordRegistry REGISTRY = KeywordRegistry.forPc1500();
+    /**
+     * Keywords of the dialect being parsed, put on the builder by {@link SharpBasicFileElementType}.
+     * Builders without it parse the default dialect.
+     */
+    public static final Key<KeywordTrie> KEYWORDS = Key.create("SharpBasic.keywords");
+
+    /**
+     * Consumes one line up to and including its terminator and collapses it into an unparsed
+     * {@link SharpBasicTypes#LINE}. The line body is only parsed by
+     * {@link SharpBasicLineElementType#doParseContents} when the line's subtree is first accessed,
+     * so parsing a file is a single pass over its tokens.
+     */
+    public static boolean lazyLine(PsiBuilder builder, int level) {
+        if (builder.eof()) {
+            return false;
+        }
+        PsiBuilder.Marker line = builder.mark();
+        while (!builder.eof() && builder.getTokenType() != SharpBasicTypes.LINE_TERMINATOR) {
+            builder.advanceLexer();
+        }
+        if (!builder.eof()) {
+            builder.advanceLexer();
+        }
+        line.collapse(SharpBasicTypes.LINE);
+        return true;
+    }
 
     /**
      * Checks if the current token is a specific keyword and consumes it.
      * Supports both full keyword names and their abbreviations.
+     * <p>
+     * The token is resolved to its keyword id directly on the builder's text, so the check does not
+     * allocate. This matters because the predicate runs again on every backtracking attempt.
      */
     public static boolean isKeyword(PsiBuilder builder, int level, String keyword) {
-        if (builder.getTokenType() == SharpBasicTypes.KEYWORD) {
-            String tokenText = builder.getTokenText();
-            if (tokenText != null) {
-                tokenText = tokenText.replaceAll("\\s+", "");
-                return REGISTRY.lookup(tokenText)
-                        .filter(bk -> bk.name().equalsIgnoreCase(keyword))
-                        .map(bk -> { builder.advanceLexer(); return true; })
-                        .orElse(false);
-            }
+        if (builder.getTokenType() != SharpBasicTypes.KEYWORD) {
+            return false;
+        }
+        KeywordTrie keywords = keywords(builder);
+        int expected = keywords.idOfName(keyword);
+        if (expected == KeywordTrie.NO_KEYWORD || keywordId(builder, keywords) != expected) {
+            return false;
         }
-        return false;
+        builder.advanceLexer();
+        return true;
+    }
+
+    /**
+     * Returns the keyword id of the current KEYWORD token, or {@link KeywordTrie#NO_KEYWORD}.
+     * The token text may contain blanks (P R I N T), which the trie skips.
+     */
+    static int keywordId(PsiBuilder builder, KeywordTrie keywords) {
+        int start = builder.getCurrentOffset();
+        int end = builder.rawTokenTypeStart(1);
+        return keywords.resolve(builder.getOriginalText(), start, end);
+    }
+
+    private static KeywordTrie keywords(PsiBuilder builder) {
+        KeywordTrie keywords = builder.getUserData(KEYWORDS);
+        return keywords != null ? keywords : KeywordTrie.forDialect(SharpBasicDialect.DEFAULT);
     }
 
     /**
@@ -0,0 +1,16 @@
+package ch.erzberger.sharpbasic.psi;
+
+import ch.erzberger.sharpbasic.lexer.TokenizedLineSize;
+
+/**
+ * A line of the file, as the device stores it.
+ */
+public interface SharpBasicDeviceLine extends SharpBasicLineNumberOwner {
+    /**
+     * Returns the size of the line in bytes once tokenized by the device, cached until the line
+     * changes.
+     *
+     * @see TokenizedLineSize
+     */
+    int getTokenizedSize();
+}
@@ -2,11 +2,21 @@ package ch.erzberger.sharpbasic.psi;
 
 import ch.erzberger.sharpbasic.SharpBasicFileType;
 import ch.erzberger.sharpbasic.SharpBasicLanguage;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectSettings;
 import com.intellij.extapi.psi.PsiFileBase;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.psi.FileViewProvider;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * PSI representation of a Sharp BASIC file.
  */
@@ -21,6 +31,60 @@ public class SharpBasicFile extends PsiFileBase {
         return SharpBasicFileType.INSTANCE;
     }
 
+    /**
+     * Returns the dialect of this file. It is cached until the file changes, so lazily parsed lines
+     * do not scan the whole file again.
+     */
+    @NotNull
+    public SharpBasicDialect getDialect() {
+        return CachedValuesManager.getCachedValue(this, () ->
+                CachedValueProvider.Result.create(SharpBasicDialectSettings.getDialect(this), this));
+    }
+
+    /**
+     * Returns the line bodies of this file in order. For a file that is not parsed they come from
+     * the stubs, so the file is not parsed.
+     */
+    @NotNull
+    public List<SharpBasicLineDeclaration> getLineDeclarations() {
+        StubElement<?> stub = getGreenStub();
+        if (stub != null) {
+            List<SharpBasicLineDeclaration> lines = new ArrayList<>();
+            for (StubElement<?> child : stub.getChildrenStubs()) {
+                if (child.getPsi() instanceof SharpBasicLineDeclaration line) {
+                    lines.add(line);
+                }
+            }
+            return lines;
+        }
+        List<SharpBasicLineDeclaration> lines = new ArrayList<>();
+        for (PsiElement child = getFirstChild(); child != null; child = child.getNextSibling()) {
+            SharpBasicLineDeclaration line = PsiTreeUtil.getChildOfType(child, SharpBasicLineDeclaration.class);
+            if (line != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the lines by number and label, cached until the file changes.
+     */
+    @NotNull
+    public SharpBasicLineTable getLineTable() {
+        return CachedValuesManager.getCachedValue(this, () ->
+                CachedValueProvider.Result.create(new SharpBasicLineTable(getLineDeclarations()), this));
+    }
+
+    /**
+     * Returns the jumps by target, cached until the file changes. Building it parses the whole file.
+     */
+    @NotNull
+    public SharpBasicJumpTable getJumpTable() {
+        return CachedValuesManager.getCachedValue(this, () ->
+                CachedValueProvider.Result.create(new SharpBasicJumpTable(this), this));
+    }
+
     @Override
     public String toString() {
         return "Sharp BASIC File";
@@ -0,0 +1,17 @@
+package ch.erzberger.sharpbasic.psi;
+
+import com.intellij.psi.PsiNamedElement;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An identifier token, i.e. a variable occurrence. BASIC has no declarations, so every occurrence
+ * names its variable, and Find Usages on it lists all occurrences of the same variable.
+ */
+public interface SharpBasicIdentifier extends PsiNamedElement {
+    /**
+     * Returns the significant part of the name, see
+     * {@link ch.erzberger.sharpbasic.psi.impl.SharpBasicPsiImplUtil#variableName}.
+     */
+    @NotNull
+    String getVariableName();
+}
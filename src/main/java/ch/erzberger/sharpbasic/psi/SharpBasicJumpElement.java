@@ -0,0 +1,33 @@
+package ch.erzberger.sharpbasic.psi;
+
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A statement that can transfer control to a line: GOTO, GOSUB, or IF with a line number after THEN.
+ * Its reference resolves to the {@link SharpBasicLineDeclaration} of the target line.
+ */
+public interface SharpBasicJumpElement extends PsiElement {
+    /**
+     * Returned when the target is not a literal line number, e.g. a label or a computed expression.
+     */
+    int NO_TARGET = -1;
+
+    /**
+     * Returns the target line number, parsed once and cached until the statement changes.
+     */
+    int getJumpTarget();
+
+    /**
+     * Returns the target label without quotes for {@code GOTO "A"}, or null if the target is not a label.
+     */
+    @Nullable
+    String getJumpLabel();
+
+    /**
+     * Returns the expression of a computed target such as {@code GOTO A*10}, or null if the target
+     * is a literal or the statement does not jump, e.g. {@code IF A THEN PRINT}.
+     */
+    @Nullable
+    PsiElement getComputedTarget();
+}
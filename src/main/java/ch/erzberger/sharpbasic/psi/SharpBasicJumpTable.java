@@ -0,0 +1,59 @@
+package ch.erzberger.sharpbasic.psi;
+
+import com.intellij.psi.util.PsiTreeUtil;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The jumps of a file by target line number and by target label, collected in one pass.
+ *
+ * @see SharpBasicFile#getJumpTable()
+ */
+public final class SharpBasicJumpTable {
+    private final Int2ObjectOpenHashMap<List<SharpBasicJumpElement>> byNumber = new Int2ObjectOpenHashMap<>();
+    private final Map<String, List<SharpBasicJumpElement>> byLabel = new HashMap<>();
+
+    SharpBasicJumpTable(@NotNull SharpBasicFile file) {
+        for (SharpBasicJumpElement jump : PsiTreeUtil.findChildrenOfType(file, SharpBasicJumpElement.class)) {
+            int target = jump.getJumpTarget();
+            if (target != SharpBasicJumpElement.NO_TARGET) {
+                byNumber.computeIfAbsent(target, key -> new ArrayList<>()).add(jump);
+                continue;
+            }
+            String label = jump.getJumpLabel();
+            if (label != null) {
+                byLabel.computeIfAbsent(label, key -> new ArrayList<>()).add(jump);
+            }
+        }
+    }
+
+    /**
+     * Returns the jumps to a line, by its number or by its label, in file order for each.
+     * Jumps to a duplicate of the line are included; resolve them to tell them apart.
+     */
+    @NotNull
+    public List<SharpBasicJumpElement> findJumpsTo(@NotNull SharpBasicLineDeclaration line) {
+        List<SharpBasicJumpElement> byLineNumber = line.getLineNumber() != SharpBasicLineNumberOwner.NO_LINE_NUMBER
+                ? byNumber.getOrDefault(line.getLineNumber(), Collections.emptyList())
+                : Collections.emptyList();
+        List<SharpBasicJumpElement> byLineLabel = line.getLabel() != null
+                ? byLabel.getOrDefault(line.getLabel(), Collections.emptyList())
+                : Collections.emptyList();
+        if (byLineLabel.isEmpty()) {
+            return byLineNumber;
+        }
+        if (byLineNumber.isEmpty()) {
+            return byLineLabel;
+        }
+        List<SharpBasicJumpElement> jumps = new ArrayList<>(byLineNumber.size() + byLineLabel.size());
+        jumps.addAll(byLineNumber);
+        jumps.addAll(byLineLabel);
+        return jumps;
+    }
+}
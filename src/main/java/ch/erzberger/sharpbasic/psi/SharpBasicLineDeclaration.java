@@ -0,0 +1,27 @@
+package ch.erzberger.sharpbasic.psi;
+
+import com.intellij.psi.PsiNameIdentifierOwner;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * The content of a program line as it is declared: its number, its label and its statements.
+ * These are stored in stubs, so they are available for closed files without parsing them.
+ * <p>
+ * Its name is the line number, or the label if the line has no number. Jumps resolve to it.
+ */
+public interface SharpBasicLineDeclaration extends SharpBasicLineNumberOwner, PsiNameIdentifierOwner {
+    /**
+     * Returns the label of the line without quotes, e.g. {@code A} for {@code 10 "A"}, or null.
+     */
+    @Nullable
+    String getLabel();
+
+    /**
+     * Returns the kinds of the statements on the line, not counting statements nested in an IF.
+     */
+    @NotNull
+    Set<SharpBasicStatementKind> getStatementKinds();
+}
@@ -0,0 +1,18 @@
+package ch.erzberger.sharpbasic.psi;
+
+import com.intellij.psi.PsiElement;
+
+/**
+ * A program line that may start with a line number.
+ */
+public interface SharpBasicLineNumberOwner extends PsiElement {
+    /**
+     * Returned for lines without a line number, or with one that is not a plain integer.
+     */
+    int NO_LINE_NUMBER = -1;
+
+    /**
+     * Returns the line number, parsed once and cached until the line changes.
+     */
+    int getLineNumber();
+}
@@ -0,0 +1,69 @@
+package ch.erzberger.sharpbasic.psi;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The lines of a file by line number and by label, for resolving jumps in constant time.
+ * The line numbers are also kept in one sorted array for {@link #containsLine}.
+ * If a number or label occurs twice, the first line wins, as on the device.
+ *
+ * @see SharpBasicFile#getLineTable()
+ */
+public final class SharpBasicLineTable {
+    private final Int2ObjectOpenHashMap<SharpBasicLineDeclaration> byNumber;
+    private final int[] numbers;
+    private final Map<String, SharpBasicLineDeclaration> byLabel = new HashMap<>();
+
+    SharpBasicLineTable(@NotNull List<? extends SharpBasicLineDeclaration> lines) {
+        byNumber = new Int2ObjectOpenHashMap<>(lines.size());
+        for (SharpBasicLineDeclaration line : lines) {
+            int number = line.getLineNumber();
+            if (number != SharpBasicLineNumberOwner.NO_LINE_NUMBER) {
+                byNumber.putIfAbsent(number, line);
+            }
+            String label = line.getLabel();
+            if (label != null) {
+                byLabel.putIfAbsent(label, line);
+            }
+        }
+        numbers = byNumber.keySet().toIntArray();
+        Arrays.sort(numbers);
+    }
+
+    /**
+     * Returns whether a line with the number exists.
+     */
+    public boolean containsLine(int lineNumber) {
+        return Arrays.binarySearch(numbers, lineNumber) >= 0;
+    }
+
+    @Nullable
+    public SharpBasicLineDeclaration findLine(int lineNumber) {
+        return byNumber.get(lineNumber);
+    }
+
+    @Nullable
+    public SharpBasicLineDeclaration findLabel(@NotNull String label) {
+        return byLabel.get(label);
+    }
+
+    /**
+     * Returns the line a jump goes to, or null if its target is computed or does not exist.
+     */
+    @Nullable
+    public SharpBasicLineDeclaration resolve(@NotNull SharpBasicJumpElement jump) {
+        int target = jump.getJumpTarget();
+        if (target != SharpBasicJumpElement.NO_TARGET) {
+            return findLine(target);
+        }
+        String label = jump.getJumpLabel();
+        return label != null ? findLabel(label) : null;
+    }
+}
@@ -0,0 +1,85 @@
+package ch.erzberger.sharpbasic.psi;
+
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Kind of a top-level statement on a line, as recorded in the line stub.
+ */
+public enum SharpBasicStatementKind {
+    LABEL,
+    FOR,
+    NEXT,
+    IF,
+    GOTO,
+    GOSUB,
+    RETURN,
+    INPUT,
+    PRINT,
+    DIM,
+    DATA,
+    READ,
+    REM,
+    END,
+    LET,
+    OTHER,
+    EXPRESSION;
+
+    private static final SharpBasicStatementKind[] VALUES = values();
+
+    // A bare expression collapses into its outermost operator node
+    private static final TokenSet EXPRESSIONS = TokenSet.create(SharpBasicTypes.EXPRESSION,
+            SharpBasicTypes.LOGICAL_EXPR, SharpBasicTypes.COMPARISON_EXPR, SharpBasicTypes.ADDITIVE_EXPR,
+            SharpBasicTypes.MULTIPLICATIVE_EXPR, SharpBasicTypes.POWER_EXPR, SharpBasicTypes.UNARY_EXPR,
+            SharpBasicTypes.PRIMARY_EXPR);
+
+    /**
+     * Returns the kind of statement with the given element type, or null if it is not a statement.
+     */
+    @Nullable
+    public static SharpBasicStatementKind of(IElementType type) {
+        if (type == SharpBasicTypes.LABEL_STMT) return LABEL;
+        if (type == SharpBasicTypes.FOR_STMT) return FOR;
+        if (type == SharpBasicTypes.NEXT_STMT) return NEXT;
+        if (type == SharpBasicTypes.IF_STMT) return IF;
+        if (type == SharpBasicTypes.GOTO_STMT) return GOTO;
+        if (type == SharpBasicTypes.GOSUB_STMT) return GOSUB;
+        if (type == SharpBasicTypes.RETURN_STMT) return RETURN;
+        if (type == SharpBasicTypes.INPUT_STMT) return INPUT;
+        if (type == SharpBasicTypes.PRINT_STMT) return PRINT;
+        if (type == SharpBasicTypes.DIM_STMT) return DIM;
+        if (type == SharpBasicTypes.DATA_STMT) return DATA;
+        if (type == SharpBasicTypes.READ_STMT) return READ;
+        if (type == SharpBasicTypes.REM_STMT) return REM;
+        if (type == SharpBasicTypes.END_STMT) return END;
+        if (type == SharpBasicTypes.LET_STMT) return LET;
+        if (type == SharpBasicTypes.OTHER_STMT) return OTHER;
+        if (EXPRESSIONS.contains(type)) return EXPRESSION;
+        return null;
+    }
+
+    /**
+     * Packs a set of kinds into a bit mask for stub serialization.
+     */
+    public static int toMask(Set<SharpBasicStatementKind> kinds) {
+        int mask = 0;
+        for (SharpBasicStatementKind kind : kinds) {
+            mask |= 1 << kind.ordinal();
+        }
+        return mask;
+    }
+
+    public static EnumSet<SharpBasicStatementKind> fromMask(int mask) {
+        EnumSet<SharpBasicStatementKind> kinds = EnumSet.noneOf(SharpBasicStatementKind.class);
+        for (SharpBasicStatementKind kind : VALUES) {
+            if ((mask & 1 << kind.ordinal()) != 0) {
+                kinds.add(kind);
+            }
+        }
+        return kinds;
+    }
+}
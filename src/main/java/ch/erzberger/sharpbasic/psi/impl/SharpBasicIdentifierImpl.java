@@ -0,0 +1,78 @@
+package ch.erzberger.sharpbasic.psi.impl;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicIdentifier;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.PsiReferenceBase;
+import com.intellij.psi.impl.source.tree.LeafPsiElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.IncorrectOperationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Leaf PSI of an identifier token, created by {@link ch.erzberger.sharpbasic.parser.SharpBasicASTFactory}.
+ */
+public class SharpBasicIdentifierImpl extends LeafPsiElement implements SharpBasicIdentifier {
+
+    public SharpBasicIdentifierImpl(@NotNull IElementType type, @NotNull CharSequence text) {
+        super(type, text);
+    }
+
+    @NotNull
+    @Override
+    public String getVariableName() {
+        return SharpBasicPsiImplUtil.variableName(getChars());
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return SharpBasicPsiImplUtil.withoutBlanks(getChars());
+    }
+
+    /**
+     * Returns the offset of the first character of the name, after the blanks folded into the token.
+     */
+    @Override
+    public int getTextOffset() {
+        return getStartOffset() + SharpBasicPsiImplUtil.significantRange(getChars()).getStartOffset();
+    }
+
+    @Override
+    public PsiElement setName(@NotNull String name) throws IncorrectOperationException {
+        throw new IncorrectOperationException("Renaming variables is not supported");
+    }
+
+    @Override
+    public PsiReference getReference() {
+        return new VariableReference(this);
+    }
+
+    @Override
+    public String toString() {
+        return "SharpBasicIdentifier(" + getElementType() + ")";
+    }
+
+    /**
+     * An occurrence refers to itself and to every other occurrence of the same variable. Its range
+     * leaves out the blanks the lexer folded into the token.
+     */
+    private static class VariableReference extends PsiReferenceBase<SharpBasicIdentifier> {
+        VariableReference(@NotNull SharpBasicIdentifierImpl element) {
+            super(element, SharpBasicPsiImplUtil.significantRange(element.getChars()), true);
+        }
+
+        @Nullable
+        @Override
+        public PsiElement resolve() {
+            return getElement();
+        }
+
+        @Override
+        public boolean isReferenceTo(@NotNull PsiElement element) {
+            return element instanceof SharpBasicIdentifier identifier
+                    && identifier.getVariableName().equals(getElement().getVariableName());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ch.erzberger.sharpbasic.psi.impl;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicJumpElement;
+import ch.erzberger.sharpbasic.psi.SharpBasicStatementKind;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.extapi.psi.ASTWrapperPsiElement;
+import com.intellij.lang.ASTNode;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.TokenSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Base class of the generated GOTO, GOSUB and IF PSI, caching the jump target.
+ * <p>
+ * The target is the last child of the statement: the expression after GOTO or GOSUB, or the
+ * statement after THEN. It is a line number if it is nothing but a number literal, and a label
+ * if it is nothing but a string literal.
+ */
+public abstract class SharpBasicJumpMixin extends ASTWrapperPsiElement implements SharpBasicJumpElement {
+    private static final TokenSet WRAPPERS =
+            TokenSet.create(SharpBasicTypes.STATEMENT, SharpBasicTypes.LABEL_STMT, SharpBasicTypes.EXPRESSION,
+                    SharpBasicTypes.PRIMARY_EXPR);
+    private static final TokenSet LITERALS =
+            TokenSet.create(SharpBasicTypes.NUMBER, SharpBasicTypes.LINE_NUMBER, SharpBasicTypes.STRING);
+
+    private volatile int jumpTarget = SharpBasicPsiImplUtil.NOT_COMPUTED;
+
+    public SharpBasicJumpMixin(@NotNull ASTNode node) {
+        super(node);
+    }
+
+    @Override
+    public int getJumpTarget() {
+        int result = jumpTarget;
+        if (result == SharpBasicPsiImplUtil.NOT_COMPUTED) {
+            ASTNode literal = findTargetLiteral();
+            result = literal != null && literal.getElementType() != SharpBasicTypes.STRING
+                    ? SharpBasicPsiImplUtil.parseLineNumber(literal.getChars()) : NO_TARGET;
+            jumpTarget = result;
+        }
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public String getJumpLabel() {
+        ASTNode literal = findTargetLiteral();
+        return literal != null && literal.getElementType() == SharpBasicTypes.STRING
+                ? SharpBasicPsiImplUtil.unquote(literal.getChars()) : null;
+    }
+
+    @Nullable
+    @Override
+    public PsiElement getComputedTarget() {
+        if (findTargetLiteral() != null) {
+            return null;
+        }
+        ASTNode target = lastSignificantChild(getNode());
+        if (target != null && target.getElementType() == SharpBasicTypes.STATEMENT) {
+            // IF ... THEN A*10
+            target = onlySignificantChild(target);
+        }
+        return target != null && SharpBasicStatementKind.of(target.getElementType()) == SharpBasicStatementKind.EXPRESSION
+                ? target.getPsi() : null;
+    }
+
+    @Nullable
+    @Override
+    public PsiReference getReference() {
+        ASTNode literal = findTargetLiteral();
+        if (literal == null) {
+            return null;
+        }
+        // From the first digit or quote: blanks in front of the literal are part of its token
+        TextRange range = SharpBasicPsiImplUtil.significantRange(literal.getChars());
+        int offset = literal.getStartOffset() - getNode().getStartOffset();
+        return new SharpBasicJumpReference(this, range.shiftRight(offset));
+    }
+
+    /**
+     * Returns the number or string token the statement jumps to, or null if the target is not a literal.
+     */
+    @Nullable
+    private ASTNode findTargetLiteral() {
+        ASTNode target = lastSignificantChild(getNode());
+        // IF ... THEN 100: the statement after THEN is a bare expression
+        while (target != null && WRAPPERS.contains(target.getElementType())) {
+            target = onlySignificantChild(target);
+        }
+        return target != null && LITERALS.contains(target.getElementType()) ? target : null;
+    }
+
+    @Nullable
+    private static ASTNode lastSignificantChild(@NotNull ASTNode node) {
+        ASTNode child = node.getLastChildNode();
+        while (child != null && child.getElementType() == TokenType.WHITE_SPACE) {
+            child = child.getTreePrev();
+        }
+        return child;
+    }
+
+    @Nullable
+    private static ASTNode onlySignificantChild(@NotNull ASTNode node) {
+        ASTNode only = null;
+        for (ASTNode child = node.getFirstChildNode(); child != null; child = child.getTreeNext()) {
+            if (child.getElementType() == TokenType.WHITE_SPACE) continue;
+            if (only != null) return null;
+            only = child;
+        }
+        return only;
+    }
+
+    @Override
+    public void subtreeChanged() {
+        jumpTarget = SharpBasicPsiImplUtil.NOT_COMPUTED;
+        super.subtreeChanged();
+    }
+}
@@ -0,0 +1,26 @@
+package ch.erzberger.sharpbasic.psi.impl;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicJumpElement;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiReferenceBase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reference from the target of a jump to the line it goes to, resolved in the line table of the file.
+ */
+public class SharpBasicJumpReference extends PsiReferenceBase<SharpBasicJumpElement> {
+
+    public SharpBasicJumpReference(@NotNull SharpBasicJumpElement element, @NotNull TextRange rangeInElement) {
+        super(element, rangeInElement, true);
+    }
+
+    @Nullable
+    @Override
+    public PsiElement resolve() {
+        return getElement().getContainingFile() instanceof SharpBasicFile file
+                ? file.getLineTable().resolve(getElement()) : null;
+    }
+}
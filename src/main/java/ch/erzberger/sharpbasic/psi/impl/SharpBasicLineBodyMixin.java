@@ -0,0 +1,131 @@
+package ch.erzberger.sharpbasic.psi.impl;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicLineBody;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineDeclaration;
+import ch.erzberger.sharpbasic.psi.SharpBasicStatementKind;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import ch.erzberger.sharpbasic.psi.stubs.SharpBasicLineDeclarationStub;
+import com.intellij.extapi.psi.StubBasedPsiElementBase;
+import com.intellij.lang.ASTNode;
+import com.intellij.navigation.ItemPresentation;
+import com.intellij.navigation.PresentationData;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.psi.tree.TokenSet;
+import com.intellij.util.IncorrectOperationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * Base class of the generated line body PSI. Reads from the stub while the file is not parsed,
+ * otherwise from the tree, caching the line number.
+ */
+public abstract class SharpBasicLineBodyMixin extends StubBasedPsiElementBase<SharpBasicLineDeclarationStub>
+        implements SharpBasicLineBody, SharpBasicLineDeclaration {
+    // The line number comes before the label, so it is found first
+    private static final TokenSet NAME_TOKENS = TokenSet.create(SharpBasicTypes.LINE_NUMBER, SharpBasicTypes.STRING);
+
+    private volatile int lineNumber = SharpBasicPsiImplUtil.NOT_COMPUTED;
+
+    public SharpBasicLineBodyMixin(@NotNull ASTNode node) {
+        super(node);
+    }
+
+    public SharpBasicLineBodyMixin(@NotNull SharpBasicLineDeclarationStub stub, @NotNull IStubElementType<?, ?> type) {
+        super(stub, type);
+    }
+
+    @Override
+    public int getLineNumber() {
+        SharpBasicLineDeclarationStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getLineNumber();
+        }
+        int result = lineNumber;
+        if (result == SharpBasicPsiImplUtil.NOT_COMPUTED) {
+            ASTNode token = getNode().findChildByType(SharpBasicTypes.LINE_NUMBER);
+            result = token != null ? SharpBasicPsiImplUtil.parseLineNumber(token.getChars()) : NO_LINE_NUMBER;
+            lineNumber = result;
+        }
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public String getLabel() {
+        SharpBasicLineDeclarationStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getLabel();
+        }
+        ASTNode token = getNode().findChildByType(SharpBasicTypes.STRING);
+        return token != null ? SharpBasicPsiImplUtil.unquote(token.getChars()) : null;
+    }
+
+    @NotNull
+    @Override
+    public Set<SharpBasicStatementKind> getStatementKinds() {
+        SharpBasicLineDeclarationStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getStatementKinds();
+        }
+        return SharpBasicPsiImplUtil.statementKinds(getNode());
+    }
+
+    /**
+     * Returns the line number, or the label if the line has no number.
+     */
+    @Nullable
+    @Override
+    public String getName() {
+        int number = getLineNumber();
+        return number != NO_LINE_NUMBER ? Integer.toString(number) : getLabel();
+    }
+
+    @Nullable
+    @Override
+    public PsiElement getNameIdentifier() {
+        ASTNode token = getNode().findChildByType(NAME_TOKENS);
+        return token != null ? token.getPsi() : null;
+    }
+
+    @Override
+    public PsiElement setName(@NotNull String name) throws IncorrectOperationException {
+        throw new IncorrectOperationException("Lines are renumbered with Renumber BASIC");
+    }
+
+    @Override
+    public int getTextOffset() {
+        PsiElement identifier = getNameIdentifier();
+        if (identifier == null) {
+            return super.getTextOffset();
+        }
+        // Navigate to the first digit or quote, not to the indentation folded into the token
+        TextRange range = SharpBasicPsiImplUtil.significantRange(identifier.getNode().getChars());
+        return identifier.getTextOffset() + range.getStartOffset();
+    }
+
+    @Override
+    public ItemPresentation getPresentation() {
+        int number = getLineNumber();
+        String label = getLabel();
+        StringBuilder text = new StringBuilder();
+        if (number != NO_LINE_NUMBER) {
+            text.append(number);
+        }
+        if (label != null) {
+            text.append(text.isEmpty() ? "" : " ").append('"').append(label).append('"');
+        }
+        PsiFile file = getContainingFile();
+        return new PresentationData(text.toString(), file != null ? file.getName() : null, null, null);
+    }
+
+    @Override
+    public void subtreeChanged() {
+        lineNumber = SharpBasicPsiImplUtil.NOT_COMPUTED;
+        super.subtreeChanged();
+    }
+}
@@ -0,0 +1,54 @@
+package ch.erzberger.sharpbasic.psi.impl;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.lexer.TokenizedLineSize;
+import ch.erzberger.sharpbasic.psi.SharpBasicDeviceLine;
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineDeclaration;
+import com.intellij.extapi.psi.ASTWrapperPsiElement;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Base class of the generated line PSI. The line number belongs to the line body, which caches it
+ * and also provides it from the stub.
+ * <p>
+ * The tokenized size is lexed from the text of the line, which does not parse a lazy line, and
+ * cached until the line changes. A reparse after an edit creates new lines only where the text
+ * changed, so the other lines keep their size.
+ */
+public abstract class SharpBasicLineMixin extends ASTWrapperPsiElement implements SharpBasicDeviceLine {
+    private volatile int tokenizedSize = SharpBasicPsiImplUtil.NOT_COMPUTED;
+
+    public SharpBasicLineMixin(@NotNull ASTNode node) {
+        super(node);
+    }
+
+    @Override
+    public int getLineNumber() {
+        // An empty line has no body
+        SharpBasicLineDeclaration body = PsiTreeUtil.getChildOfType(this, SharpBasicLineDeclaration.class);
+        return body != null ? body.getLineNumber() : NO_LINE_NUMBER;
+    }
+
+    @Override
+    public int getTokenizedSize() {
+        int result = tokenizedSize;
+        if (result == SharpBasicPsiImplUtil.NOT_COMPUTED) {
+            PsiFile file = getContainingFile();
+            SharpBasicDialect dialect = file instanceof SharpBasicFile basicFile
+                    ? basicFile.getDialect() : SharpBasicDialect.DEFAULT;
+            result = TokenizedLineSize.of(getNode().getChars(), dialect);
+            tokenizedSize = result;
+        }
+        return result;
+    }
+
+    @Override
+    public void subtreeChanged() {
+        tokenizedSize = SharpBasicPsiImplUtil.NOT_COMPUTED;
+        super.subtreeChanged();
+    }
+}
@@ -0,0 +1,159 @@
+package ch.erzberger.sharpbasic.psi.impl;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicLineNumberOwner;
+import ch.erzberger.sharpbasic.psi.SharpBasicStatementKind;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.lang.ASTNode;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.TokenType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumSet;
+
+/**
+ * Helpers shared by the PSI mixins.
+ */
+public final class SharpBasicPsiImplUtil {
+    /**
+     * Marks a cached value that has not been computed yet or was reset by a change.
+     */
+    static final int NOT_COMPUTED = Integer.MIN_VALUE;
+
+    // Larger than any PC-1500 line number, and small enough that parsing cannot overflow
+    private static final int MAX_LINE_NUMBER = 999_999;
+
+    private SharpBasicPsiImplUtil() {
+    }
+
+    /**
+     * Parses the digits of a line number without creating a string.
+     * <p>
+     * The lexer folds the blanks it removes into the following token, so the text of {@code GOTO 100}'s
+     * target is {@code " 100"} and a spaced {@code 1 0 0} is one token. Blanks are skipped like in
+     * {@link ch.erzberger.sharpbasic.lexer.KeywordTrie#resolve}.
+     *
+     * @return the line number, or {@link SharpBasicLineNumberOwner#NO_LINE_NUMBER} if the text is not a
+     * plain integer in range
+     */
+    public static int parseLineNumber(CharSequence text) {
+        int length = text.length();
+        int value = 0;
+        boolean digits = false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (isBlank(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return SharpBasicLineNumberOwner.NO_LINE_NUMBER;
+            }
+            value = value * 10 + (c - '0');
+            if (value > MAX_LINE_NUMBER) {
+                return SharpBasicLineNumberOwner.NO_LINE_NUMBER;
+            }
+            digits = true;
+        }
+        return digits ? value : SharpBasicLineNumberOwner.NO_LINE_NUMBER;
+    }
+
+    /**
+     * Returns the range of a token's text without the blanks folded in front of it and, for the last
+     * token of a line, behind it. An empty range at the end is returned for text that is all blanks.
+     */
+    @NotNull
+    public static TextRange significantRange(@NotNull CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && isBlank(text.charAt(start))) start++;
+        while (end > start && isBlank(text.charAt(end - 1))) end--;
+        return new TextRange(start, end);
+    }
+
+    /**
+     * Returns whether a character is a blank the lexer removes outside strings and comments.
+     */
+    public static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    /**
+     * Returns the name of the variable an identifier denotes. Only the first two characters and the
+     * type suffix are significant on the PC-1500, so {@code ABC$} and {@code AB$} are the same variable.
+     * Blanks folded into the token are not part of the name.
+     */
+    @NotNull
+    public static String variableName(@NotNull CharSequence identifier) {
+        String text = withoutBlanks(identifier);
+        int length = text.length();
+        char last = length > 0 ? text.charAt(length - 1) : 0;
+        boolean hasSuffix = length > 1 && (last == '$' || last == '#');
+        int significant = Math.min(hasSuffix ? length - 1 : length, 2);
+        if (significant == length) {
+            return text;
+        }
+        String name = text.substring(0, significant);
+        return hasSuffix ? name + last : name;
+    }
+
+    /**
+     * Returns the text of a token without the blanks the lexer removed, e.g. {@code ABC$} for the
+     * identifier token {@code " A BC$"}.
+     */
+    @NotNull
+    public static String withoutBlanks(@NotNull CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length && !isBlank(text.charAt(i))) i++;
+        if (i == length) {
+            return text.toString();
+        }
+        StringBuilder result = new StringBuilder(length - 1).append(text, 0, i);
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (!isBlank(c)) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Removes the quotes around a string literal. A literal missing its closing quote keeps the rest.
+     * Blanks folded into the token outside the quotes are dropped; blanks inside them are kept.
+     */
+    @NotNull
+    public static String unquote(@NotNull CharSequence text) {
+        TextRange range = significantRange(text);
+        int start = range.getStartOffset();
+        int end = range.getEndOffset();
+        if (start < end && text.charAt(start) == '"') start++;
+        if (end > start && text.charAt(end - 1) == '"') end--;
+        return text.subSequence(start, end).toString();
+    }
+
+    /**
+     * Returns the kinds of the top-level statements of a line body.
+     */
+    @NotNull
+    public static EnumSet<SharpBasicStatementKind> statementKinds(@NotNull ASTNode body) {
+        EnumSet<SharpBasicStatementKind> kinds = EnumSet.noneOf(SharpBasicStatementKind.class);
+        for (ASTNode list = body.getFirstChildNode(); list != null; list = list.getTreeNext()) {
+            if (list.getElementType() != SharpBasicTypes.STATEMENT_LIST
+                    && list.getElementType() != SharpBasicTypes.STATEMENT_LIST_NON_EMPTY) {
+                continue;
+            }
+            for (ASTNode statement : list.getChildren(null)) {
+                if (statement.getElementType() != SharpBasicTypes.STATEMENT) continue;
+                ASTNode first = statement.getFirstChildNode();
+                while (first != null && first.getElementType() == TokenType.WHITE_SPACE) {
+                    first = first.getTreeNext();
+                }
+                SharpBasicStatementKind kind = first != null ? SharpBasicStatementKind.of(first.getElementType()) : null;
+                if (kind != null) {
+                    kinds.add(kind);
+                }
+            }
+        }
+        return kinds;
+    }
+}
@@ -0,0 +1,30 @@
+package ch.erzberger.sharpbasic.psi.stubs;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicLineBody;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * Index of line bodies by label without quotes, e.g. {@code "A"} for {@code 10 "A"}.
+ */
+public class SharpBasicLabelIndex extends StringStubIndexExtension<SharpBasicLineBody> {
+    public static final StubIndexKey<String, SharpBasicLineBody> KEY = StubIndexKey.createIndexKey("sharpBasic.label");
+
+    @NotNull
+    @Override
+    public StubIndexKey<String, SharpBasicLineBody> getKey() {
+        return KEY;
+    }
+
+    @NotNull
+    public static Collection<SharpBasicLineBody> find(@NotNull String label, @NotNull Project project,
+                                                      @NotNull GlobalSearchScope scope) {
+        return StubIndex.getElements(KEY, label, project, scope, SharpBasicLineBody.class);
+    }
+}
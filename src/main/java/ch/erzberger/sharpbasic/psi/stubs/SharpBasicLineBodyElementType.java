@@ -0,0 +1,81 @@
+package ch.erzberger.sharpbasic.psi.stubs;
+
+import ch.erzberger.sharpbasic.SharpBasicLanguage;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineBody;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineNumberOwner;
+import ch.erzberger.sharpbasic.psi.SharpBasicStatementKind;
+import ch.erzberger.sharpbasic.psi.impl.SharpBasicLineBodyImpl;
+import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.psi.stubs.IndexSink;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubInputStream;
+import com.intellij.psi.stubs.StubOutputStream;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.EnumSet;
+
+/**
+ * Stub element type of a line body. The stub holds the line number, the label and the statement
+ * kinds; the line number and the label are indexed.
+ */
+public class SharpBasicLineBodyElementType extends IStubElementType<SharpBasicLineDeclarationStub, SharpBasicLineBody> {
+
+    public SharpBasicLineBodyElementType(@NotNull @NonNls String debugName) {
+        super(debugName, SharpBasicLanguage.INSTANCE);
+    }
+
+    /**
+     * Factory used by the generated element type holder.
+     */
+    public static IElementType create(@NotNull @NonNls String debugName) {
+        return new SharpBasicLineBodyElementType(debugName);
+    }
+
+    @NotNull
+    @Override
+    public String getExternalId() {
+        return "sharpBasic." + this;
+    }
+
+    @Override
+    public SharpBasicLineBody createPsi(@NotNull SharpBasicLineDeclarationStub stub) {
+        return new SharpBasicLineBodyImpl(stub, this);
+    }
+
+    @NotNull
+    @Override
+    public SharpBasicLineDeclarationStub createStub(@NotNull SharpBasicLineBody psi, StubElement<?> parentStub) {
+        return new SharpBasicLineDeclarationStubImpl(parentStub, this,
+                psi.getLineNumber(), psi.getLabel(), EnumSet.copyOf(psi.getStatementKinds()));
+    }
+
+    @Override
+    public void serialize(@NotNull SharpBasicLineDeclarationStub stub, @NotNull StubOutputStream dataStream) throws IOException {
+        // Shifted by one so that a missing line number is stored as 0
+        dataStream.writeVarInt(stub.getLineNumber() + 1);
+        dataStream.writeName(stub.getLabel());
+        dataStream.writeVarInt(SharpBasicStatementKind.toMask(stub.getStatementKinds()));
+    }
+
+    @NotNull
+    @Override
+    public SharpBasicLineDeclarationStub deserialize(@NotNull StubInputStream dataStream, StubElement parentStub) throws IOException {
+        int lineNumber = dataStream.readVarInt() - 1;
+        String label = dataStream.readNameString();
+        EnumSet<SharpBasicStatementKind> kinds = SharpBasicStatementKind.fromMask(dataStream.readVarInt());
+        return new SharpBasicLineDeclarationStubImpl(parentStub, this, lineNumber, label, kinds);
+    }
+
+    @Override
+    public void indexStub(@NotNull SharpBasicLineDeclarationStub stub, @NotNull IndexSink sink) {
+        if (stub.getLineNumber() != SharpBasicLineNumberOwner.NO_LINE_NUMBER) {
+            sink.occurrence(SharpBasicLineNumberIndex.KEY, Integer.toString(stub.getLineNumber()));
+        }
+        if (stub.getLabel() != null) {
+            sink.occurrence(SharpBasicLabelIndex.KEY, stub.getLabel());
+        }
+    }
+}
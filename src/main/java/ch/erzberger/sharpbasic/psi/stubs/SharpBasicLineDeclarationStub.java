@@ -0,0 +1,22 @@
+package ch.erzberger.sharpbasic.psi.stubs;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicLineBody;
+import ch.erzberger.sharpbasic.psi.SharpBasicStatementKind;
+import com.intellij.psi.stubs.StubElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * Stub of a line body, see {@link ch.erzberger.sharpbasic.psi.SharpBasicLineDeclaration}.
+ */
+public interface SharpBasicLineDeclarationStub extends StubElement<SharpBasicLineBody> {
+    int getLineNumber();
+
+    @Nullable
+    String getLabel();
+
+    @NotNull
+    Set<SharpBasicStatementKind> getStatementKinds();
+}
@@ -0,0 +1,43 @@
+package ch.erzberger.sharpbasic.psi.stubs;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicLineBody;
+import ch.erzberger.sharpbasic.psi.SharpBasicStatementKind;
+import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.psi.stubs.StubBase;
+import com.intellij.psi.stubs.StubElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+public class SharpBasicLineDeclarationStubImpl extends StubBase<SharpBasicLineBody> implements SharpBasicLineDeclarationStub {
+    private final int lineNumber;
+    private final String label;
+    private final Set<SharpBasicStatementKind> statementKinds;
+
+    public SharpBasicLineDeclarationStubImpl(StubElement<?> parent, IStubElementType<?, ?> elementType,
+                                             int lineNumber, @Nullable String label,
+                                             @NotNull Set<SharpBasicStatementKind> statementKinds) {
+        super(parent, elementType);
+        this.lineNumber = lineNumber;
+        this.label = label;
+        this.statementKinds = statementKinds;
+    }
+
+    @Override
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Nullable
+    @Override
+    public String getLabel() {
+        return label;
+    }
+
+    @NotNull
+    @Override
+    public Set<SharpBasicStatementKind> getStatementKinds() {
+        return statementKinds;
+    }
+}
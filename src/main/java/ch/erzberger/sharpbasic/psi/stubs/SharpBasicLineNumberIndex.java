@@ -0,0 +1,30 @@
+package ch.erzberger.sharpbasic.psi.stubs;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicLineBody;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * Index of line bodies by line number, e.g. {@code "1000"}.
+ */
+public class SharpBasicLineNumberIndex extends StringStubIndexExtension<SharpBasicLineBody> {
+    public static final StubIndexKey<String, SharpBasicLineBody> KEY = StubIndexKey.createIndexKey("sharpBasic.lineNumber");
+
+    @NotNull
+    @Override
+    public StubIndexKey<String, SharpBasicLineBody> getKey() {
+        return KEY;
+    }
+
+    @NotNull
+    public static Collection<SharpBasicLineBody> find(int lineNumber, @NotNull Project project,
+                                                      @NotNull GlobalSearchScope scope) {
+        return StubIndex.getElements(KEY, Integer.toString(lineNumber), project, scope, SharpBasicLineBody.class);
+    }
+}
@@ -0,0 +1,85 @@
+package ch.erzberger.sharpbasic.syntax;
+
+import ch.erzberger.sharpbasic.SharpBasicIcons;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.fileTypes.SyntaxHighlighter;
+import com.intellij.openapi.options.colors.AttributesDescriptor;
+import com.intellij.openapi.options.colors.ColorDescriptor;
+import com.intellij.openapi.options.colors.ColorSettingsPage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.util.Map;
+
+/**
+ * Color settings page for Sharp BASIC (Settings | Editor | Color Scheme | Sharp BASIC).
+ */
+public class SharpBasicColorSettingsPage implements ColorSettingsPage {
+    private static final AttributesDescriptor[] DESCRIPTORS = new AttributesDescriptor[]{
+            new AttributesDescriptor("Keywords//PC-1500 keyword", SharpBasicSyntaxHighlighter.KEYWORD),
+            new AttributesDescriptor("Keywords//CE-150 keyword", SharpBasicSyntaxHighlighter.KEYWORD_CE150),
+            new AttributesDescriptor("Keywords//CE-158 keyword", SharpBasicSyntaxHighlighter.KEYWORD_CE158),
+            new AttributesDescriptor("Keywords//PC-1600 keyword", SharpBasicSyntaxHighlighter.KEYWORD_PC1600),
+            new AttributesDescriptor("Keywords//Abbreviation", SharpBasicSyntaxHighlighter.KEYWORD_ABBREVIATION),
+            new AttributesDescriptor("Line number", SharpBasicSyntaxHighlighter.LINE_NUMBER),
+            new AttributesDescriptor("Number", SharpBasicSyntaxHighlighter.NUMBER),
+            new AttributesDescriptor("String", SharpBasicSyntaxHighlighter.STRING),
+            new AttributesDescriptor("Comment", SharpBasicSyntaxHighlighter.COMMENT),
+            new AttributesDescriptor("Identifier", SharpBasicSyntaxHighlighter.IDENTIFIER),
+            new AttributesDescriptor("Operator", SharpBasicSyntaxHighlighter.OPERATOR),
+            new AttributesDescriptor("Separator", SharpBasicSyntaxHighlighter.SEPARATOR),
+    };
+
+    @Nullable
+    @Override
+    public Icon getIcon() {
+        return SharpBasicIcons.FILE;
+    }
+
+    @NotNull
+    @Override
+    public SyntaxHighlighter getHighlighter() {
+        return new SharpBasicSyntaxHighlighter();
+    }
+
+    @NotNull
+    @Override
+    public String getDemoText() {
+        return """
+                // Source-only comment
+                10 REM Draw a box
+                20 INPUT "SIZE";S:IF S<1 GOTO 20
+                30 GRAPH :GLCURSOR (0,0)
+                40 LINE -(S,-S),0,3,B
+                50 FOR I=1 TO 10:P. I*S;:NEXT I
+                60 A$="DONE":GPRINT A$
+                70 SETCOM 1200,8,N,1:TERMINAL
+                80 END
+                """;
+    }
+
+    @Nullable
+    @Override
+    public Map<String, TextAttributesKey> getAdditionalHighlightingTagToDescriptorMap() {
+        return null;
+    }
+
+    @NotNull
+    @Override
+    public AttributesDescriptor[] getAttributeDescriptors() {
+        return DESCRIPTORS;
+    }
+
+    @NotNull
+    @Override
+    public ColorDescriptor[] getColorDescriptors() {
+        return ColorDescriptor.EMPTY_ARRAY;
+    }
+
+    @NotNull
+    @Override
+    public String getDisplayName() {
+        return "Sharp BASIC";
+    }
+}
@@ -0,0 +1,84 @@
+package ch.erzberger.sharpbasic.syntax;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectSettings;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectTracker;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.colors.EditorColorsScheme;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.ex.EditorEx;
+import com.intellij.openapi.editor.ex.util.LexerEditorHighlighter;
+import com.intellij.openapi.editor.highlighter.HighlighterClient;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Editor highlighter for the keywords of one dialect.
+ * <p>
+ * The parser follows the dialect detected from the document, so adding or removing the only PC-1600 keyword
+ * changes how the file is lexed. The lexer is fixed for the lifetime of a highlighter, so when the dialect
+ * of the document differs from the highlighter's, the editor gets a new highlighter for the new dialect,
+ * which lexes the whole document again. The document's dialect comes from its
+ * {@link SharpBasicDialectTracker}, which only looks at the edited lines, so typing costs nothing extra.
+ */
+public class SharpBasicEditorHighlighter extends LexerEditorHighlighter {
+    private final Project project;
+    private final VirtualFile file;
+    private final SharpBasicDialect dialect;
+    private HighlighterClient client;
+
+    public SharpBasicEditorHighlighter(@Nullable Project project, @Nullable VirtualFile file,
+                                       @NotNull SharpBasicDialect dialect, @NotNull EditorColorsScheme scheme) {
+        super(new SharpBasicSyntaxHighlighter(dialect), scheme);
+        this.project = project;
+        this.file = file;
+        this.dialect = dialect;
+    }
+
+    @NotNull
+    public SharpBasicDialect getDialect() {
+        return dialect;
+    }
+
+    @Override
+    public void setEditor(@NotNull HighlighterClient editor) {
+        super.setEditor(editor);
+        client = editor;
+    }
+
+    @Override
+    public void setText(@NotNull CharSequence text) {
+        super.setText(text);
+        restartIfDialectChanged();
+    }
+
+    @Override
+    public void documentChanged(@NotNull DocumentEvent e) {
+        super.documentChanged(e);
+        restartIfDialectChanged();
+    }
+
+    @NotNull
+    private SharpBasicDialect documentDialect(@NotNull Document document) {
+        return SharpBasicDialectSettings.getDialect(project, file, document);
+    }
+
+    private void restartIfDialectChanged() {
+        if (!(client instanceof EditorEx editor) || documentDialect(editor.getDocument()) == dialect) {
+            return;
+        }
+        // The editor cannot swap its highlighter while it is notifying it of a change
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (editor.isDisposed() || editor.getHighlighter() != this) {
+                return;
+            }
+            SharpBasicDialect detected = documentDialect(editor.getDocument());
+            if (detected != dialect) {
+                editor.setHighlighter(new SharpBasicEditorHighlighter(project, file, detected, editor.getColorsScheme()));
+            }
+        }, project != null ? project.getDisposed() : ApplicationManager.getApplication().getDisposed());
+    }
+}
@@ -0,0 +1,24 @@
+package ch.erzberger.sharpbasic.syntax;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectSettings;
+import com.intellij.openapi.editor.colors.EditorColorsScheme;
+import com.intellij.openapi.editor.highlighter.EditorHighlighter;
+import com.intellij.openapi.fileTypes.EditorHighlighterProvider;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Creates the editor highlighters of Sharp BASIC files, which follow the dialect detected while editing.
+ */
+public class SharpBasicEditorHighlighterProvider implements EditorHighlighterProvider {
+    @Override
+    public EditorHighlighter getEditorHighlighter(@Nullable Project project, @NotNull FileType fileType,
+                                                  @Nullable VirtualFile virtualFile,
+                                                  @NotNull EditorColorsScheme colors) {
+        return new SharpBasicEditorHighlighter(project, virtualFile,
+                SharpBasicDialectSettings.getDialect(project, virtualFile), colors);
+    }
+}
@@ -0,0 +1,84 @@
+package ch.erzberger.sharpbasic.syntax;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
+import ch.erzberger.sharpbasic.lexer.SharpBasicLexerAdapter;
+import ch.erzberger.sharpbasic.psi.SharpBasicTokenType;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.lexer.DelegateLexer;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Highlighting-only lexer that splits KEYWORD tokens by keyword category, so that extension keywords
+ * and dotted abbreviations can have their own colours.
+ * <p>
+ * Each KEYWORD token is resolved once when the lexer advances to it, so painting only needs a table
+ * lookup by token type. The parser keeps using the plain lexer and never sees these token types.
+ */
+public class SharpBasicHighlightingLexer extends DelegateLexer {
+    public static final IElementType KEYWORD_CE150 = new SharpBasicTokenType("KEYWORD_CE150");
+    public static final IElementType KEYWORD_CE158 = new SharpBasicTokenType("KEYWORD_CE158");
+    public static final IElementType KEYWORD_PC1600 = new SharpBasicTokenType("KEYWORD_PC1600");
+    public static final IElementType KEYWORD_ABBREVIATION = new SharpBasicTokenType("KEYWORD_ABBREVIATION");
+
+    private final KeywordTrie keywords;
+    // Token type for each keyword id, precomputed from the keyword categories
+    private final IElementType[] typesById;
+    private IElementType tokenType;
+
+    public SharpBasicHighlightingLexer() {
+        this(SharpBasicDialect.DEFAULT);
+    }
+
+    public SharpBasicHighlightingLexer(@NotNull SharpBasicDialect dialect) {
+        super(new SharpBasicLexerAdapter(dialect));
+        keywords = KeywordTrie.forDialect(dialect);
+        typesById = new IElementType[keywords.size()];
+        for (int id = 0; id < typesById.length; id++) {
+            typesById[id] = switch (keywords.categoryOf(id)) {
+                case PC1500 -> SharpBasicTypes.KEYWORD;
+                case CE150_EXTENSION -> KEYWORD_CE150;
+                case CE158_EXTENSION -> KEYWORD_CE158;
+                case PC1600 -> KEYWORD_PC1600;
+            };
+        }
+    }
+
+    @Override
+    public void start(@NotNull CharSequence buffer, int startOffset, int endOffset, int initialState) {
+        super.start(buffer, startOffset, endOffset, initialState);
+        tokenType = resolveTokenType();
+    }
+
+    @Override
+    public void advance() {
+        super.advance();
+        tokenType = resolveTokenType();
+    }
+
+    @Override
+    public IElementType getTokenType() {
+        return tokenType;
+    }
+
+    private IElementType resolveTokenType() {
+        IElementType type = super.getTokenType();
+        if (type != SharpBasicTypes.KEYWORD) {
+            return type;
+        }
+        CharSequence buffer = getBufferSequence();
+        int start = getTokenStart();
+        int end = getTokenEnd();
+        // The last token of a line also covers the blanks trailing it
+        int last = end - 1;
+        while (last > start && (buffer.charAt(last) == ' ' || buffer.charAt(last) == '\t')) {
+            last--;
+        }
+        if (buffer.charAt(last) == '.') {
+            return KEYWORD_ABBREVIATION;
+        }
+        int id = keywords.resolve(buffer, start, end);
+        return id != KeywordTrie.NO_KEYWORD ? typesById[id] : type;
+    }
+}
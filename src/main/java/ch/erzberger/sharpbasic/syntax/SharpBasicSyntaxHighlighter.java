@@ -1,7 +1,7 @@
 package ch.erzberger.sharpbasic.syntax;
 
-import ch.erzberger.sharpbasic.lexer.SharpBasicLexerAdapter;
-import ch.erzberger.sharpbasic.psi.SharpBasicTokenType;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
 import com.intellij.lexer.Lexer;
 import com.intellij.openapi.editor.DefaultLanguageHighlighterColors;
 import com.intellij.openapi.editor.colors.TextAttributesKey;
@@ -9,6 +9,9 @@ import com.intellij.openapi.fileTypes.SyntaxHighlighterBase;
 import com.intellij.psi.tree.IElementType;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static com.intellij.openapi.editor.colors.TextAttributesKey.createTextAttributesKey;
 
 /**
@@ -19,6 +22,19 @@ public class SharpBasicSyntaxHighlighter extends SyntaxHighlighterBase {
     public static final TextAttributesKey KEYWORD =
             createTextAttributesKey("SHARP_BASIC_KEYWORD", DefaultLanguageHighlighterColors.KEYWORD);
 
+    // Extension keywords and abbreviations fall back to the keyword colour unless configured
+    public static final TextAttributesKey KEYWORD_CE150 =
+            createTextAttributesKey("SHARP_BASIC_KEYWORD_CE150", KEYWORD);
+
+    public static final TextAttributesKey KEYWORD_CE158 =
+            createTextAttributesKey("SHARP_BASIC_KEYWORD_CE158", KEYWORD);
+
+    public static final TextAttributesKey KEYWORD_PC1600 =
+            createTextAttributesKey("SHARP_BASIC_KEYWORD_PC1600", KEYWORD);
+
+    public static final TextAttributesKey KEYWORD_ABBREVIATION =
+            createTextAttributesKey("SHARP_BASIC_KEYWORD_ABBREVIATION", KEYWORD);
+
     public static final TextAttributesKey LINE_NUMBER =
             createTextAttributesKey("SHARP_BASIC_LINE_NUMBER", DefaultLanguageHighlighterColors.METADATA);
 
@@ -43,63 +59,54 @@ public class SharpBasicSyntaxHighlighter extends SyntaxHighlighterBase {
     // Empty keys array for tokens that don't need highlighting
     private static final TextAttributesKey[] EMPTY_KEYS = new TextAttributesKey[0];
 
-    // Arrays for different token types
-    private static final TextAttributesKey[] KEYWORD_KEYS = new TextAttributesKey[]{KEYWORD};
-    private static final TextAttributesKey[] LINE_NUMBER_KEYS = new TextAttributesKey[]{LINE_NUMBER};
-    private static final TextAttributesKey[] NUMBER_KEYS = new TextAttributesKey[]{NUMBER};
-    private static final TextAttributesKey[] STRING_KEYS = new TextAttributesKey[]{STRING};
-    private static final TextAttributesKey[] COMMENT_KEYS = new TextAttributesKey[]{COMMENT};
-    private static final TextAttributesKey[] OPERATOR_KEYS = new TextAttributesKey[]{OPERATOR};
-    private static final TextAttributesKey[] IDENTIFIER_KEYS = new TextAttributesKey[]{IDENTIFIER};
-    private static final TextAttributesKey[] SEPARATOR_KEYS = new TextAttributesKey[]{SEPARATOR};
+    // Token type to highlight keys, built once so painting is a single map lookup
+    private static final Map<IElementType, TextAttributesKey[]> KEYS = new HashMap<>();
+
+    static {
+        register(KEYWORD, SharpBasicTypes.KEYWORD);
+        register(KEYWORD_CE150, SharpBasicHighlightingLexer.KEYWORD_CE150);
+        register(KEYWORD_CE158, SharpBasicHighlightingLexer.KEYWORD_CE158);
+        register(KEYWORD_PC1600, SharpBasicHighlightingLexer.KEYWORD_PC1600);
+        register(KEYWORD_ABBREVIATION, SharpBasicHighlightingLexer.KEYWORD_ABBREVIATION);
+        register(LINE_NUMBER, SharpBasicTypes.LINE_NUMBER);
+        register(NUMBER, SharpBasicTypes.NUMBER);
+        register(STRING, SharpBasicTypes.STRING);
+        register(COMMENT, SharpBasicTypes.COMMENT, SharpBasicTypes.EXTRA_COMMENT);
+        register(IDENTIFIER, SharpBasicTypes.IDENTIFIER);
+        register(OPERATOR, SharpBasicTypes.PLUS, SharpBasicTypes.MINUS, SharpBasicTypes.MULT,
+                SharpBasicTypes.DIV, SharpBasicTypes.POWER, SharpBasicTypes.EQ, SharpBasicTypes.LT,
+                SharpBasicTypes.GT, SharpBasicTypes.LE, SharpBasicTypes.GE, SharpBasicTypes.NE);
+        register(SEPARATOR, SharpBasicTypes.LPAREN, SharpBasicTypes.RPAREN, SharpBasicTypes.COMMA,
+                SharpBasicTypes.SEMICOLON, SharpBasicTypes.COLON, SharpBasicTypes.HASH);
+    }
 
-    @NotNull
-    @Override
-    public Lexer getHighlightingLexer() {
-        return new SharpBasicLexerAdapter();
+    private final SharpBasicDialect dialect;
+
+    public SharpBasicSyntaxHighlighter() {
+        this(SharpBasicDialect.DEFAULT);
     }
 
-    @NotNull
-    @Override
-    public TextAttributesKey[] getTokenHighlights(IElementType tokenType) {
-        if (tokenType == null) {
-            return EMPTY_KEYS;
-        }
+    public SharpBasicSyntaxHighlighter(@NotNull SharpBasicDialect dialect) {
+        this.dialect = dialect;
+    }
 
-        String tokenName = tokenType.toString();
-        if (tokenName.contains("KEYWORD")) {
-            return KEYWORD_KEYS;
-        } else if (tokenName.contains("LINE_NUMBER")) {
-            return LINE_NUMBER_KEYS;
-        } else if (tokenName.contains("NUMBER")) {
-            return NUMBER_KEYS;
-        } else if (tokenName.contains("STRING")) {
-            return STRING_KEYS;
-        } else if (tokenName.contains("COMMENT")) {
-            return COMMENT_KEYS;
-        } else if (tokenName.contains("IDENTIFIER")) {
-            return IDENTIFIER_KEYS;
-        } else if (isOperator(tokenName)) {
-            return OPERATOR_KEYS;
-        } else if (isSeparator(tokenName)) {
-            return SEPARATOR_KEYS;
+    private static void register(TextAttributesKey key, IElementType... tokenTypes) {
+        TextAttributesKey[] keys = new TextAttributesKey[]{key};
+        for (IElementType tokenType : tokenTypes) {
+            KEYS.put(tokenType, keys);
         }
-
-        return EMPTY_KEYS;
     }
 
-    private boolean isOperator(String tokenName) {
-        return tokenName.contains("PLUS") || tokenName.contains("MINUS") ||
-               tokenName.contains("MULT") || tokenName.contains("DIV") ||
-               tokenName.contains("POWER") || tokenName.contains("EQ") ||
-               tokenName.contains("LT") || tokenName.contains("GT") ||
-               tokenName.contains("LE") || tokenName.contains("GE") ||
-               tokenName.contains("NE");
+    @NotNull
+    @Override
+    public Lexer getHighlightingLexer() {
+        return new SharpBasicHighlightingLexer(dialect);
     }
 
-    private boolean isSeparator(String tokenName) {
-        return tokenName.contains("LPAREN") || tokenName.contains("RPAREN") ||
-               tokenName.contains("COMMA") || tokenName.contains("SEMICOLON") ||
-               tokenName.contains("COLON") || tokenName.contains("HASH");
+    @NotNull
+    @Override
+    public TextAttributesKey[] getTokenHighlights(IElementType tokenType) {
+        TextAttributesKey[] keys = KEYS.get(tokenType);
+        return keys != null ? keys : EMPTY_KEYS;
     }
 }
@@ -1,5 +1,6 @@
 package ch.erzberger.sharpbasic.syntax;
 
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialectSettings;
 import com.intellij.openapi.fileTypes.SyntaxHighlighter;
 import com.intellij.openapi.fileTypes.SyntaxHighlighterFactory;
 import com.intellij.openapi.project.Project;
@@ -9,11 +10,13 @@ import org.jetbrains.annotations.Nullable;
 
 /**
  * Factory for creating Sharp BASIC syntax highlighters.
+ * The highlighter recognizes the keywords of the file's dialect. Editors use
+ * {@link SharpBasicEditorHighlighterProvider}, whose highlighters follow dialect changes while editing.
  */
 public class SharpBasicSyntaxHighlighterFactory extends SyntaxHighlighterFactory {
     @NotNull
     @Override
     public SyntaxHighlighter getSyntaxHighlighter(@Nullable Project project, @Nullable VirtualFile virtualFile) {
-        return new SharpBasicSyntaxHighlighter();
+        return new SharpBasicSyntaxHighlighter(SharpBasicDialectSettings.getDialect(project, virtualFile));
     }
 }
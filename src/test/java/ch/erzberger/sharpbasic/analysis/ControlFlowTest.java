@@ -0,0 +1,131 @@
+package ch.erzberger.sharpbasic.analysis;
+
+import ch.erzberger.sharpbasic.parser.SharpBasicParserDefinition;
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import com.intellij.testFramework.ParsingTestCase;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+public class ControlFlowTest extends ParsingTestCase {
+    public ControlFlowTest() {
+        super("", "bas", new SharpBasicParserDefinition());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "examples";
+    }
+
+    private SharpBasicControlFlow flow(String text) {
+        SharpBasicFile file = (SharpBasicFile) createPsiFile("flow.bas", text);
+        return new SharpBasicControlFlowBuilder(file).build();
+    }
+
+    /**
+     * Returns the line numbers of the lines that no reachable node belongs to.
+     */
+    private static List<Integer> unreachableLines(SharpBasicControlFlow flow) {
+        BitSet reachable = flow.getReachableNodes();
+        List<Integer> lines = new ArrayList<>();
+        for (int line = 0; line < flow.getLineCount(); line++) {
+            int reached = reachable.nextSetBit(flow.firstNodeOf(line));
+            if (reached < 0 || reached >= flow.endNodeOf(line)) {
+                lines.add(flow.getLine(line).getLineNumber());
+            }
+        }
+        return lines;
+    }
+
+    public void testNodesAndEdges() {
+        SharpBasicControlFlow flow = flow("10 A=1:GOTO 30\n20 PRINT A\n30 END\n");
+        assertEquals(3, flow.getLineCount());
+        assertEquals(4, flow.getNodeCount());
+        assertOrderedEquals(flow.getSuccessors(0), 1);
+        // GOTO does not fall through
+        assertOrderedEquals(flow.getSuccessors(1), 3);
+        assertOrderedEquals(flow.getSuccessors(2), 3);
+        assertEmpty(flow.getSuccessors(3));
+        assertEquals(List.of(20), unreachableLines(flow));
+    }
+
+    public void testGosubReturn() {
+        SharpBasicControlFlow flow = flow("10 GOSUB 100\n20 END\n30 PRINT\n100 RETURN\n");
+        assertEquals(List.of(30), unreachableLines(flow));
+    }
+
+    public void testIfFalseContinuesWithNextLine() {
+        SharpBasicControlFlow flow = flow("10 IF A=1 THEN 40\n20 IF B GOTO 40:END\n30 END\n40 IF C THEN PRINT:GOTO 10\n50 END\n");
+        assertEmpty(unreachableLines(flow));
+        // The IF on line 20 continues with line 30 if false and jumps to line 40 if true
+        assertOrderedEquals(flow.getSuccessors(1), 3, 4);
+    }
+
+    public void testIfThenEndStopsOnlyTheTrueBranch() {
+        SharpBasicControlFlow flow = flow("10 IF A THEN END\n20 GOTO 10\n");
+        assertEmpty(unreachableLines(flow));
+    }
+
+    public void testForNextBackEdge() {
+        SharpBasicControlFlow flow = flow("10 FOR I=1 TO 3\n20 FOR J=1 TO 3:PRINT J\n30 NEXT J\n40 NEXT I\n50 END\n");
+        // NEXT J loops back to PRINT J, NEXT I to line 20
+        int nextJ = flow.firstNodeOf(2);
+        int nextI = flow.firstNodeOf(3);
+        assertOrderedEquals(flow.getSuccessors(nextJ), 2, nextJ + 1);
+        assertOrderedEquals(flow.getSuccessors(nextI), 1, nextI + 1);
+    }
+
+    public void testOnGoto() {
+        SharpBasicControlFlow flow = flow("10 ON A GOTO 30,40\n20 END\n30 END\n40 END\n50 END\n");
+        assertEquals(List.of(50), unreachableLines(flow));
+        assertFalse(flow.hasComputedJump(0));
+    }
+
+    public void testSpacedTargets() {
+        SharpBasicControlFlow flow = flow("10 GOTO  30\n20 END\n30 GOSUB 5 0\n40 END\n50 RETURN\n");
+        assertFalse(flow.hasComputedJump(0));
+        assertEquals(List.of(20), unreachableLines(flow));
+    }
+
+    public void testSpacedOnGoto() {
+        SharpBasicControlFlow flow = flow("10 ON A GOTO  30 , 40\n20 END\n30 END\n40 ON B GOSUB 6 0,\t70\n50 END\n60 RETURN\n70 RETURN\n80 END\n");
+        assertFalse(flow.hasComputedJump(0));
+        assertFalse(flow.hasComputedJump(flow.firstNodeOf(3)));
+        // ON falls through when the value has no target
+        assertEquals(List.of(80), unreachableLines(flow));
+    }
+
+    public void testOnGotoNonIntegerTargetIsComputed() {
+        SharpBasicControlFlow flow = flow("10 ON A GOTO 30, 1.5\n20 END\n30 END\n");
+        assertTrue(flow.hasComputedJump(0));
+        assertEmpty(unreachableLines(flow));
+    }
+
+    public void testComputedJumpReachesEverything() {
+        SharpBasicControlFlow flow = flow("10 GOTO A*10\n20 END\n30 END\n");
+        assertTrue(flow.hasComputedJump(0));
+        assertEmpty(unreachableLines(flow));
+    }
+
+    public void testLabelledLinesAreEntries() {
+        SharpBasicControlFlow flow = flow("10 END\n20 \"A\" PRINT\n30 END\n40 END\n");
+        assertEquals(List.of(40), unreachableLines(flow));
+        assertTrue(flow.isEntryLine(1));
+    }
+
+    public void testLinearOnLargeProgram() {
+        int count = 10_000;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            sb.append(i * 10).append(i % 3 == 0 ? " GOSUB " + ((i % 50 + 1) * 10) : " A=A+1").append('\n');
+        }
+        long start = System.nanoTime();
+        SharpBasicControlFlow flow = flow(sb.toString());
+        flow.getReachableNodes();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("[DEBUG_LOG] Control flow of " + count + " lines: " + millis + " ms");
+        assertEquals(count, flow.getNodeCount());
+        assertEmpty(unreachableLines(flow));
+    }
+}
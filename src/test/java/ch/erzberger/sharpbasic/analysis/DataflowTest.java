@@ -0,0 +1,136 @@
+package ch.erzberger.sharpbasic.analysis;
+
+import ch.erzberger.sharpbasic.parser.SharpBasicParserDefinition;
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.impl.SharpBasicPsiImplUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.testFramework.ParsingTestCase;
+
+import java.util.List;
+
+public class DataflowTest extends ParsingTestCase {
+    public DataflowTest() {
+        super("", "bas", new SharpBasicParserDefinition());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "examples";
+    }
+
+    private SharpBasicDataflow dataflow(String text) {
+        SharpBasicFile file = (SharpBasicFile) createPsiFile("dataflow.bas", text);
+        return new SharpBasicDataflowBuilder(file, new SharpBasicControlFlowBuilder(file).build()).build();
+    }
+
+    // Without the blank the lexer folds into a token, as in the " A" of 10 A=1
+    private static List<String> texts(List<PsiElement> elements) {
+        return elements.stream().map(element -> SharpBasicPsiImplUtil.withoutBlanks(element.getText())).toList();
+    }
+
+    public void testReadBeforeAssignment() {
+        SharpBasicDataflow dataflow = dataflow("10 A=1\n20 PRINT A+B\n30 END\n");
+        assertEquals(List.of("B"), texts(dataflow.getReadsBeforeAssignment()));
+        assertEmpty(dataflow.getUnusedAssignments());
+    }
+
+    public void testOnlyTwoCharactersAreSignificant() {
+        SharpBasicDataflow dataflow = dataflow("10 ABC=1,XY$=\"A\"\n20 PRINT AB;XYZ$\n");
+        assertEmpty(dataflow.getReadsBeforeAssignment());
+        assertEmpty(dataflow.getUnusedAssignments());
+        assertEquals(List.of("AB", "XY$"), dataflow.getVariables());
+    }
+
+    public void testSpacingDoesNotChangeTheVariable() {
+        SharpBasicDataflow dataflow = dataflow("10 A = 1\n20 PRINT B+A;  A\n30 A B=2:PRINT A B\n");
+        assertEquals(List.of("A", "B", "AB"), dataflow.getVariables());
+        assertEquals(List.of("B"), texts(dataflow.getReadsBeforeAssignment()));
+        assertEmpty(dataflow.getUnusedAssignments());
+    }
+
+    public void testEvaluationOrder() {
+        // The value is read before the assignment; B=A reads the A assigned before it
+        SharpBasicDataflow dataflow = dataflow("10 A=A+1\n20 C=1,B=C\n30 PRINT B\n");
+        assertEquals(List.of("A"), texts(dataflow.getReadsBeforeAssignment()));
+        assertEquals(List.of("A"), texts(dataflow.getUnusedAssignments()));
+    }
+
+    public void testOverwrittenAssignment() {
+        SharpBasicDataflow dataflow = dataflow("10 A=1\n20 A=2:B=3\n30 PRINT A\n");
+        assertEquals(List.of("A", "B"), texts(dataflow.getUnusedAssignments()));
+        // The A of line 10
+        assertEquals(3, dataflow.getUnusedAssignments().get(0).getTextOffset());
+    }
+
+    public void testLoop() {
+        SharpBasicDataflow dataflow = dataflow("10 S=0\n20 FOR I=1 TO 9\n30 S=S+I\n40 NEXT I\n50 PRINT S\n");
+        assertEmpty(dataflow.getReadsBeforeAssignment());
+        assertEmpty(dataflow.getUnusedAssignments());
+    }
+
+    public void testConditionalAssignmentDoesNotKill() {
+        SharpBasicDataflow dataflow = dataflow("10 A=0\n20 IF X THEN A=1\n30 PRINT A\n");
+        assertEquals(List.of("X"), texts(dataflow.getReadsBeforeAssignment()));
+        assertEmpty(dataflow.getUnusedAssignments());
+    }
+
+    public void testSubroutine() {
+        // The value assigned in the subroutine is read after the RETURN
+        SharpBasicDataflow dataflow = dataflow("10 GOSUB 100\n20 PRINT R\n30 END\n100 R=5\n110 RETURN\n");
+        assertEmpty(dataflow.getReadsBeforeAssignment());
+        assertEmpty(dataflow.getUnusedAssignments());
+    }
+
+    public void testComputedJump() {
+        // X is assigned in line 40, which continues at line 30 through GOTO 20
+        SharpBasicDataflow dataflow = dataflow("10 INPUT N\n20 GOTO N\n30 PRINT X\n40 X=1:GOTO 20\n");
+        assertEmpty(dataflow.getReadsBeforeAssignment());
+        assertEmpty(dataflow.getUnusedAssignments());
+    }
+
+    public void testArrays() {
+        SharpBasicDataflow dataflow = dataflow("10 DIM B(10),C$(5)\n20 B(1)=1:B(2)=2\n30 PRINT B(1);D(1);@(3)\n");
+        assertEquals(List.of("C$"), texts(dataflow.getUnusedDims()));
+        // Assigning B(2) does not overwrite B(1); the fixed variables are not reported
+        assertEmpty(dataflow.getUnusedAssignments());
+        assertEquals(List.of("D"), texts(dataflow.getReadsBeforeAssignment()));
+        assertTrue(dataflow.getVariables().containsAll(List.of("B()", "C$()", "D()", "@()")));
+    }
+
+    public void testInputAndReadAssign() {
+        SharpBasicDataflow dataflow = dataflow("10 INPUT \"NAME\";N$,K$\n20 READ A,B(A)\n30 PRINT N$;B(1)\n40 DATA 1,2\n");
+        assertEmpty(dataflow.getReadsBeforeAssignment());
+        // K$ is never read, but INPUT is not reported
+        assertEmpty(dataflow.getUnusedAssignments());
+    }
+
+    public void testUnreachableCodeIsNotReported() {
+        SharpBasicDataflow dataflow = dataflow("10 END\n20 PRINT Q\n");
+        assertEmpty(dataflow.getReadsBeforeAssignment());
+    }
+
+    public void testLargeProgram() {
+        int count = 10_000;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String variable = String.valueOf((char) ('A' + i % 26)) + (char) ('A' + i / 26 % 26);
+            int line = (i + 1) * 10;
+            sb.append(line).append(switch (i % 4) {
+                case 0 -> " " + variable + "=" + i + ":FOR I=1 TO 3";
+                case 1 -> " " + variable + "(I)=I*2:NEXT I";
+                case 2 -> " IF " + variable + ">5 GOSUB " + (count * 10 + 10);
+                default -> " PRINT " + variable + ";AA";
+            }).append('\n');
+        }
+        sb.append(count * 10 + 10).append(" X=X+1:RETURN\n");
+        SharpBasicFile file = (SharpBasicFile) createPsiFile("large.bas", sb.toString());
+        SharpBasicControlFlow flow = new SharpBasicControlFlowBuilder(file).build();
+
+        long start = System.nanoTime();
+        SharpBasicDataflow dataflow = new SharpBasicDataflowBuilder(file, flow).build();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("[DEBUG_LOG] " + count + " lines, " + dataflow.getVariables().size() + " variables: "
+                + millis + " ms");
+        assertFalse(dataflow.getReadsBeforeAssignment().isEmpty());
+    }
+}
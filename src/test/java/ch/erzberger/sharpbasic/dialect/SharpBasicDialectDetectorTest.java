@@ -0,0 +1,130 @@
+package ch.erzberger.sharpbasic.dialect;
+
+import ch.erzberger.sharpbasic.core.keyword.BasicKeyword;
+import ch.erzberger.sharpbasic.core.keyword.KeywordCategory;
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
+import ch.erzberger.sharpbasic.lexer.SharpBasicLexerAdapter;
+import com.intellij.psi.tree.IElementType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Dialect Detection Tests")
+class SharpBasicDialectDetectorTest {
+
+    /**
+     * A PC-1600 keyword that the default dialect does not know.
+     */
+    private static String pc1600Keyword() {
+        KeywordTrie defaults = KeywordTrie.forDialect(SharpBasicDialect.DEFAULT);
+        for (BasicKeyword keyword : SharpBasicDialect.PC1600.getRegistry().allKeywords()) {
+            if (keyword.category() == KeywordCategory.PC1600 && !defaults.contains(keyword.name())) {
+                return keyword.name();
+            }
+        }
+        return fail("No PC-1600 only keyword in the registry");
+    }
+
+    @Test
+    @DisplayName("PC-1500 program gets the default dialect")
+    void testDefaultDialect() {
+        assertEquals(SharpBasicDialect.DEFAULT,
+                SharpBasicDialectDetector.detect("10 PRINT \"HELLO\"\n20 GOTO 10\n"));
+        assertEquals(SharpBasicDialect.DEFAULT, SharpBasicDialectDetector.detect(""));
+    }
+
+    @Test
+    @DisplayName("PC-1600 keyword selects the PC-1600 dialect")
+    void testPc1600Keyword() {
+        String keyword = pc1600Keyword();
+        assertEquals(SharpBasicDialect.PC1600,
+                SharpBasicDialectDetector.detect("10 PRINT 1\n20 " + keyword + "\n"));
+        assertEquals(SharpBasicDialect.PC1600,
+                SharpBasicDialectDetector.detect("10 A=1:" + keyword + "\n"));
+    }
+
+    @Test
+    @DisplayName("PC-1600 keyword glued to the previous token or spaced selects the PC-1600 dialect")
+    void testGluedAndSpacedKeyword() {
+        String keyword = pc1600Keyword();
+        assertEquals(SharpBasicDialect.PC1600, SharpBasicDialectDetector.detect("10" + keyword + "\n"));
+        assertEquals(SharpBasicDialect.PC1600, SharpBasicDialectDetector.detect("10 PRINT 1\n20" + keyword + "\n"));
+        assertEquals(SharpBasicDialect.PC1600,
+                SharpBasicDialectDetector.detect("10 " + String.join(" ", keyword.split("")) + "\n"));
+    }
+
+    @Test
+    @DisplayName("PC-1600 keywords are counted per range of lines")
+    void testCountPc1600Keywords() {
+        String keyword = pc1600Keyword();
+        String text = "10 " + keyword + ":" + keyword + "\n20 PRINT \"" + keyword + "\"\n30 " + keyword + "\n";
+        int second = text.indexOf("20");
+        int third = text.indexOf("30");
+        assertEquals(3, SharpBasicDialectDetector.countPc1600Keywords(text, 0, text.length()));
+        assertEquals(2, SharpBasicDialectDetector.countPc1600Keywords(text, 0, second - 1));
+        assertEquals(0, SharpBasicDialectDetector.countPc1600Keywords(text, second, third - 1));
+        assertEquals(1, SharpBasicDialectDetector.countPc1600Keywords(text, third, text.length()));
+    }
+
+    @Test
+    @DisplayName("PC-1600 keywords in strings and comments are ignored")
+    void testStringsAndComments() {
+        String keyword = pc1600Keyword();
+        assertEquals(SharpBasicDialect.DEFAULT,
+                SharpBasicDialectDetector.detect("10 PRINT \"" + keyword + "\"\n"));
+        assertEquals(SharpBasicDialect.DEFAULT,
+                SharpBasicDialectDetector.detect("10 REM " + keyword + "\n"));
+        assertEquals(SharpBasicDialect.DEFAULT,
+                SharpBasicDialectDetector.detect("10 A=1:'" + keyword + "\n"));
+        assertEquals(SharpBasicDialect.DEFAULT,
+                SharpBasicDialectDetector.detect("# " + keyword + "\n// " + keyword + "\n"));
+    }
+
+    @Test
+    @DisplayName("Unclosed string ends at the line end")
+    void testUnclosedString() {
+        assertEquals(SharpBasicDialect.PC1600,
+                SharpBasicDialectDetector.detect("10 PRINT \"OPEN\n20 " + pc1600Keyword() + "\n"));
+    }
+
+    private static List<String> tokens(SharpBasicDialect dialect, CharSequence text) {
+        SharpBasicLexerAdapter lexer = new SharpBasicLexerAdapter(dialect);
+        lexer.start(text);
+        List<String> tokens = new ArrayList<>();
+        for (IElementType type; (type = lexer.getTokenType()) != null; lexer.advance()) {
+            tokens.add(type + "[" + lexer.getTokenStart() + "-" + lexer.getTokenEnd() + "]");
+        }
+        return tokens;
+    }
+
+    @Test
+    @DisplayName("Without PC-1600 keywords, the keywords of all dialects give the default dialect's tokens")
+    void testAllDialectsLexLikeDefault() throws IOException {
+        File[] files = new File("examples").listFiles((dir, name) -> name.endsWith(".bas"));
+        assertNotNull(files);
+        for (File file : files) {
+            String text = Files.readString(file.toPath(), StandardCharsets.ISO_8859_1);
+            if (SharpBasicDialectDetector.detect(text) == SharpBasicDialect.DEFAULT) {
+                assertEquals(tokens(SharpBasicDialect.DEFAULT, text), tokens(SharpBasicDialect.PC1600, text),
+                        file.getName());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Each dialect has its own shared keyword trie")
+    void testTriePerDialect() {
+        assertSame(KeywordTrie.forDialect(SharpBasicDialect.PC1500), KeywordTrie.forDialect(SharpBasicDialect.PC1500));
+        assertTrue(KeywordTrie.forDialect(SharpBasicDialect.DEFAULT).contains("GPRINT"));
+        assertFalse(KeywordTrie.forDialect(SharpBasicDialect.PC1500).contains("GPRINT"));
+        assertTrue(KeywordTrie.forDialect(SharpBasicDialect.PC1600).contains(pc1600Keyword()));
+    }
+}
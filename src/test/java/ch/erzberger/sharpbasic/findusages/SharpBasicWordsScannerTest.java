@@ -0,0 +1,56 @@
+package ch.erzberger.sharpbasic.findusages;
+
+import ch.erzberger.sharpbasic.psi.impl.SharpBasicPsiImplUtil;
+import com.intellij.lang.cacheBuilder.WordOccurrence;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Words Scanner Tests")
+class SharpBasicWordsScannerTest {
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        new SharpBasicWordsScanner().processWords(text, occurrence -> {
+            assertEquals(WordOccurrence.Kind.CODE, occurrence.getKind());
+            words.add(occurrence.getBaseText().subSequence(occurrence.getStart(), occurrence.getEnd()).toString());
+            return true;
+        });
+        return words;
+    }
+
+    @Test
+    @DisplayName("Only identifiers are words")
+    void testOnlyIdentifiers() {
+        assertEquals(List.of("A", "B1", "A", "C$"),
+                words("10 A=B1+1:PRINT \"SUM\";A\n20 REM TOTAL\n// NOTE\n30 INPUT C$\n"));
+    }
+
+    @Test
+    @DisplayName("Identifiers are indexed under their significant name")
+    void testSignificantName() {
+        assertEquals(List.of("AB$", "AB$", "AB$"), words("10 ABC$=\"X\":AB$=ABC$\n"));
+    }
+
+    @Test
+    @DisplayName("Blanks folded into identifiers are not part of the word")
+    void testSpacedIdentifiers() {
+        assertEquals(List.of("AB", "A", "B", "A", "AB$"), words("10 PRINT AB\n20 A = 1 : B=A\n30 A B C$=\"\"\n"));
+    }
+
+    @Test
+    @DisplayName("Only two characters and the suffix are significant")
+    void testVariableName() {
+        assertEquals("A", SharpBasicPsiImplUtil.variableName("A"));
+        assertEquals("AB", SharpBasicPsiImplUtil.variableName("AB"));
+        assertEquals("AB$", SharpBasicPsiImplUtil.variableName("ABC$"));
+        assertEquals("A#", SharpBasicPsiImplUtil.variableName("A#"));
+        assertEquals("$", SharpBasicPsiImplUtil.variableName("$"));
+        assertEquals("A", SharpBasicPsiImplUtil.variableName(" A"));
+        assertEquals("AB$", SharpBasicPsiImplUtil.variableName("  A BC$"));
+    }
+}
@@ -0,0 +1,99 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BatchReformatter Tests")
+class BatchReformatterTest {
+
+    private static ForkJoinPool pool;
+    private static String listing;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        pool = new ForkJoinPool(4);
+        File[] files = new File("examples").listFiles((dir, name) -> name.endsWith(".bas"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        StringBuilder sb = new StringBuilder();
+        for (File file : files) {
+            sb.append(Files.readString(file.toPath(), StandardCharsets.ISO_8859_1)).append('\n');
+        }
+        listing = sb.toString();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    private static void assertIdentical(String code, UnaryOperator<String> reformatter) {
+        String sequential = reformatter.apply(code);
+        for (int shardLength : new int[]{1, 100, 1_000, 10_000}) {
+            assertEquals(sequential, BatchReformatter.reformat(code, reformatter, 0, shardLength, pool),
+                    "shard length " + shardLength);
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel output is identical for all line-local reformatters")
+    void testIdenticalToSequential() {
+        SharpBasicDialect dialect = SharpBasicDialect.DEFAULT;
+        assertIdentical(listing, code -> SharpBasicCodeReformatter.reformat(code, dialect));
+        assertIdentical(listing, code -> SharpBasicNiceReformatter.reformat(code, dialect));
+        assertIdentical(listing, code -> SharpBasicStrippedReformatter.reformat(code, dialect));
+        assertIdentical(listing, code -> SharpBasicCompactReformatter.reformat(code, dialect));
+    }
+
+    @Test
+    @DisplayName("Line endings are restored as in the sequential path")
+    void testLineEndings() {
+        UnaryOperator<String> reformatter = code -> SharpBasicCodeReformatter.reformat(code, SharpBasicDialect.DEFAULT);
+        assertIdentical(listing.replace("\n", "\r\n"), reformatter);
+        assertIdentical(listing.replace("\n", "\r"), reformatter);
+        // Mixed: the first CRLF decides, as in the sequential path
+        assertIdentical("10 PRINT 1\n20 PRINT 2\r\n30 PRINT 3\r40 PRINT 4\n", reformatter);
+    }
+
+    @Test
+    @DisplayName("Shards are only split between numbered lines")
+    void testSplit() {
+        String code = "10 A=1\n// note\n20 B=2\n\n30 C=3\n40 D=4";
+        assertEquals(List.of("10 A=1\n// note\n20 B=2\n\n30 C=3", "40 D=4"), BatchReformatter.split(code, 1));
+        assertEquals(List.of("// only\n# comments"), BatchReformatter.split("// only\n# comments", 1));
+    }
+
+    @Test
+    @DisplayName("Small sources are reformatted on the calling thread")
+    void testSmallSource() {
+        String code = "10 PRINT\"Hello\"";
+        assertEquals(SharpBasicCodeReformatter.reformat(code),
+                SharpBasicCodeReformatter.reformatBatch(code, SharpBasicDialect.DEFAULT));
+    }
+
+    @Test
+    @DisplayName("Shards are parsed without the parse cache")
+    void testShardsBypassCache() {
+        String code = listing.repeat(BatchReformatter.MIN_PARALLEL_LENGTH / listing.length() + 1);
+        ParseCache cache = ParseCache.getInstance();
+        cache.clear();
+        String batch = SharpBasicCodeReformatter.reformatBatch(code, SharpBasicDialect.DEFAULT);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMisses());
+        assertEquals(SharpBasicCodeReformatter.reformat(code, SharpBasicDialect.DEFAULT), batch);
+    }
+}
@@ -0,0 +1,80 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ParseCache Tests")
+class ParseCacheTest {
+
+    private static final String CODE = "10 P.\"HELLO\";A\r\n20 FOR I=1TO 9:N.I\r\n30 GOTO 10";
+
+    @Test
+    @DisplayName("The same source is parsed once for all views")
+    void testHit() {
+        ParseCache cache = new ParseCache(ParseCache.DEFAULT_MAX_WEIGHT);
+        ParsedSource first = cache.get(CODE, SharpBasicDialect.DEFAULT);
+        assertSame(first, cache.get(CODE, SharpBasicDialect.DEFAULT));
+        // Equal text in another string instance
+        assertSame(first, cache.get(new String(CODE.toCharArray()), SharpBasicDialect.DEFAULT));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+        assertTrue(cache.getWeight() > 0);
+    }
+
+    @Test
+    @DisplayName("Dialects are cached separately")
+    void testDialect() {
+        ParseCache cache = new ParseCache(ParseCache.DEFAULT_MAX_WEIGHT);
+        assertNotSame(cache.get(CODE, SharpBasicDialect.DEFAULT), cache.get(CODE, SharpBasicDialect.PC1600));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("The least recently used sources are evicted when the weight bound is reached")
+    void testEviction() {
+        ParseCache probe = new ParseCache(ParseCache.DEFAULT_MAX_WEIGHT);
+        probe.get("10 A=1", SharpBasicDialect.DEFAULT);
+        long entryWeight = probe.getWeight();
+
+        // Room for two entries of about that size
+        ParseCache cache = new ParseCache(entryWeight * 2 + entryWeight / 2);
+        cache.get("10 A=1", SharpBasicDialect.DEFAULT);
+        cache.get("10 B=1", SharpBasicDialect.DEFAULT);
+        cache.get("10 A=1", SharpBasicDialect.DEFAULT);
+        cache.get("10 C=1", SharpBasicDialect.DEFAULT);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        assertTrue(cache.getWeight() <= entryWeight * 2 + entryWeight / 2);
+
+        // B was the least recently used
+        long misses = cache.getMisses();
+        cache.get("10 A=1", SharpBasicDialect.DEFAULT);
+        assertEquals(misses, cache.getMisses());
+        cache.get("10 B=1", SharpBasicDialect.DEFAULT);
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Sources heavier than the bound are parsed but not cached")
+    void testTooLarge() {
+        ParseCache cache = new ParseCache(1);
+        assertNotNull(cache.get(CODE, SharpBasicDialect.DEFAULT).tree);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    @DisplayName("Cached output is identical to a fresh parse")
+    void testOutputUnchanged() {
+        String canonical = SharpBasicCodeReformatter.reformat(CODE);
+        String nice = SharpBasicNiceReformatter.reformat(CODE);
+        assertEquals(canonical, SharpBasicCodeReformatter.reformat(CODE));
+        assertEquals(nice, SharpBasicNiceReformatter.reformat(CODE));
+        assertTrue(canonical.contains("\r\n"));
+        assertFalse(canonical.endsWith("\r\n"));
+    }
+}
@@ -0,0 +1,85 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import ch.erzberger.sharpbasic.antlr.SharpBasicLexer;
+import ch.erzberger.sharpbasic.antlr.SharpBasicParser;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ParsedSource Tests")
+class ParsedSourceTest {
+
+    private static final List<String> RULE_NAMES = Arrays.asList(SharpBasicParser.ruleNames);
+
+    private static final String[] BROKEN = {
+            "10 PRINT (",
+            "20 A=(1+",
+            "30 FOR =",
+            "40 X=SIN(",
+            "10 PRINT 1\n) )\n20 END",
+    };
+
+    private static String tree(ParseTree tree) {
+        return tree.toStringTree(RULE_NAMES);
+    }
+
+    /**
+     * Parses like the reformatters did before: fresh objects and full LL prediction.
+     */
+    private static String referenceTree(String normalized) {
+        SharpBasicLexer lexer = new SharpBasicLexer(CharStreams.fromString(normalized));
+        lexer.removeErrorListeners();
+        SharpBasicParser parser = new SharpBasicParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        return tree(parser.program());
+    }
+
+    private static void assertSameTree(String code) {
+        ParsedSource parsed = ParsedSource.parse(code, SharpBasicDialect.DEFAULT);
+        assertEquals(referenceTree(parsed.normalized), tree(parsed.tree), code);
+    }
+
+    @Test
+    @DisplayName("Two-stage parsing gives the same trees as full LL parsing")
+    void testExamples() throws IOException {
+        File[] files = new File("examples").listFiles((dir, name) -> name.endsWith(".bas"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        for (File file : files) {
+            assertSameTree(Files.readString(file.toPath(), StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    @Test
+    @DisplayName("Syntax errors fall back to LL with error recovery")
+    void testBroken() {
+        for (String code : BROKEN) {
+            assertSameTree(code);
+        }
+    }
+
+    @Test
+    @DisplayName("Reusing the parser of a thread leaves earlier trees intact")
+    void testReuse() {
+        ParsedSource first = ParsedSource.parse("10 PRINT \"A\"\n20 GOTO 10", SharpBasicDialect.DEFAULT);
+        String before = tree(first.tree);
+        ParsedSource second = ParsedSource.parse(BROKEN[0], SharpBasicDialect.DEFAULT);
+        ParsedSource third = ParsedSource.parse("10 END", SharpBasicDialect.DEFAULT);
+        assertNotSame(first.tree, second.tree);
+        assertNotSame(second.tree, third.tree);
+        assertEquals(before, tree(first.tree));
+        assertTrue(first.weight() > third.weight());
+    }
+}
@@ -0,0 +1,67 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SharpBasicExporter Tests")
+class SharpBasicExporterTest {
+
+    private static String listing;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        File[] files = new File("examples").listFiles((dir, name) -> name.endsWith(".bas"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        StringBuilder sb = new StringBuilder();
+        for (File file : files) {
+            sb.append(Files.readString(file.toPath(), StandardCharsets.ISO_8859_1)).append('\n');
+        }
+        listing = sb.toString();
+    }
+
+    @Test
+    @DisplayName("Every format is identical to its reformatter")
+    void testIdenticalToReformatters() {
+        SharpBasicDialect dialect = SharpBasicDialect.DEFAULT;
+        Map<ExportFormat, String> outputs = SharpBasicExporter.export(listing, dialect);
+        assertEquals(EnumSet.allOf(ExportFormat.class), outputs.keySet());
+        assertEquals(SharpBasicCodeReformatter.reformat(listing, dialect), outputs.get(ExportFormat.CANONICAL));
+        assertEquals(SharpBasicStrippedReformatter.reformat(listing, dialect), outputs.get(ExportFormat.STRIPPED));
+        assertEquals(SharpBasicCompactReformatter.reformat(listing, dialect), outputs.get(ExportFormat.COMPACT));
+        assertEquals(SharpBasicNiceReformatter.reformat(listing, dialect), outputs.get(ExportFormat.NICE));
+    }
+
+    @Test
+    @DisplayName("Parallel export is identical to sequential export")
+    void testParallel() {
+        EnumSet<ExportFormat> all = EnumSet.allOf(ExportFormat.class);
+        String code = listing.replace("\n", "\r\n");
+        assertEquals(SharpBasicExporter.export(code, SharpBasicDialect.DEFAULT, all, false),
+                SharpBasicExporter.export(code, SharpBasicDialect.DEFAULT, all, true));
+    }
+
+    @Test
+    @DisplayName("The source is parsed once for all formats")
+    void testSingleParse() {
+        ParseCache cache = ParseCache.getInstance();
+        String code = "10 P.\"EXPORT\";" + System.nanoTime();
+        long misses = cache.getMisses();
+        Map<ExportFormat, String> outputs = SharpBasicExporter.export(code, SharpBasicDialect.DEFAULT,
+                EnumSet.of(ExportFormat.CANONICAL, ExportFormat.NICE), true);
+        assertEquals(EnumSet.of(ExportFormat.CANONICAL, ExportFormat.NICE), outputs.keySet());
+        assertEquals(misses + 1, cache.getMisses());
+    }
+}
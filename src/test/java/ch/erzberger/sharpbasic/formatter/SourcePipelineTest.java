@@ -0,0 +1,137 @@
+package ch.erzberger.sharpbasic.formatter;
+
+import ch.erzberger.sharpbasic.core.keyword.KeywordRegistry;
+import ch.erzberger.sharpbasic.core.preprocess.AbbreviationExpander;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@DisplayName("SourcePipeline Tests")
+class SourcePipelineTest {
+
+    private static final KeywordRegistry REGISTRY = SharpBasicDialect.DEFAULT.getRegistry();
+
+    private static String listing;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        File[] files = new File("examples").listFiles((dir, name) -> name.endsWith(".bas"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        StringBuilder sb = new StringBuilder();
+        for (File file : files) {
+            sb.append(Files.readString(file.toPath(), StandardCharsets.ISO_8859_1)).append('\n');
+        }
+        listing = sb.toString();
+    }
+
+    // The stages as the reformatters ran them before, one copy of the source each
+
+    private static String referenceExpand(String source) {
+        String[] lines = source.replace("\r\n", "\n").replace("\r", "\n").split("\n", -1);
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) out.append('\n');
+            out.append(AbbreviationExpander.expand(lines[i], REGISTRY));
+        }
+        return out.toString();
+    }
+
+    private static String referenceLineEnding(String code) {
+        if (code.contains("\r\n")) return "\r\n";
+        if (code.contains("\r")) return "\r";
+        return "\n";
+    }
+
+    private static String referenceRestore(String result, String lineEnding) {
+        if (!"\n".equals(lineEnding)) {
+            result = result.replace("\n", lineEnding);
+        }
+        if (result.endsWith(lineEnding)) {
+            result = result.substring(0, result.length() - lineEnding.length());
+        }
+        return result;
+    }
+
+    private static void assertSameAsReference(String code) {
+        SourcePipeline.Expanded expanded = SourcePipeline.expand(code, REGISTRY);
+        assertEquals(referenceExpand(code), expanded.text());
+        assertEquals(referenceLineEnding(code), expanded.lineEnding());
+        assertEquals(referenceLineEnding(code), SourcePipeline.detectLineEnding(code));
+        assertEquals(code.replace("\r\n", "\n").replace("\r", "\n"), SourcePipeline.normalizeLineEndings(code));
+        assertEquals(referenceRestore(expanded.text(), expanded.lineEnding()),
+                SourcePipeline.restoreLineEndings(expanded.text(), expanded.lineEnding()));
+    }
+
+    @Test
+    @DisplayName("The single pass gives the same text as the separate stages")
+    void testExamples() {
+        assertSameAsReference(listing);
+        assertSameAsReference(listing.replace("\n", "\r\n"));
+        assertSameAsReference(listing.replace("\n", "\r"));
+    }
+
+    @Test
+    @DisplayName("Mixed and trailing line endings")
+    void testLineEndings() {
+        assertSameAsReference("");
+        assertSameAsReference("10 P.A");
+        assertSameAsReference("10 P.A\r\n20 N.I\n30 END\r");
+        assertSameAsReference("10 P.A\r20 N.I\n");
+        assertSameAsReference("\r\n\r\n");
+        assertSameAsReference("\n\r");
+        assertEquals(new SourcePipeline.Expanded("\n\n", "\r\n"), SourcePipeline.expand("\r\n\n", REGISTRY));
+    }
+
+    @Test
+    @DisplayName("Lines without abbreviations are copied unchanged")
+    void testCopy() {
+        String code = "10 PRINT \"A\"\n20 GOTO 10";
+        assertEquals(code, SourcePipeline.expand(code, REGISTRY).text());
+        assertSame(code, SourcePipeline.normalizeLineEndings(code));
+        assertSame(code, SourcePipeline.withLineEnding(code, SourcePipeline.LF));
+    }
+
+    @Test
+    @DisplayName("The single pass allocates less than the separate stages on large inputs")
+    void testAllocation() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        String code = listing.replace("\n", "\r\n").repeat(200);
+        long threadId = Thread.currentThread().getId();
+        // Warm up both paths, so class loading and the thread's buffer are not measured
+        for (int i = 0; i < 3; i++) {
+            referenceRestore(referenceExpand(code), referenceLineEnding(code));
+            SourcePipeline.Expanded expanded = SourcePipeline.expand(code, REGISTRY);
+            SourcePipeline.restoreLineEndings(expanded.text(), expanded.lineEnding());
+        }
+
+        long start = bean.getThreadAllocatedBytes(threadId);
+        String reference = referenceRestore(referenceExpand(code), referenceLineEnding(code));
+        long referenceBytes = bean.getThreadAllocatedBytes(threadId) - start;
+
+        start = bean.getThreadAllocatedBytes(threadId);
+        SourcePipeline.Expanded expanded = SourcePipeline.expand(code, REGISTRY);
+        String pipeline = SourcePipeline.restoreLineEndings(expanded.text(), expanded.lineEnding());
+        long pipelineBytes = bean.getThreadAllocatedBytes(threadId) - start;
+
+        System.out.printf("[DEBUG_LOG] source %d chars, separate stages %d bytes, single pass %d bytes%n",
+                code.length(), referenceBytes, pipelineBytes);
+        assertEquals(reference, pipeline);
+        assertTrue(pipelineBytes < referenceBytes);
+    }
+}
@@ -0,0 +1,61 @@
+package ch.erzberger.sharpbasic.index;
+
+import ch.erzberger.sharpbasic.core.keyword.KeywordCategory;
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import ch.erzberger.sharpbasic.lexer.KeywordTrie;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Keyword Index Tests")
+class SharpBasicKeywordIndexTest {
+
+    private static String categoryOf(String keyword) {
+        KeywordTrie keywords = KeywordTrie.forDialect(SharpBasicDialect.DEFAULT);
+        return SharpBasicKeywordIndex.categoryKey(keywords.categoryOf(keywords.idOfName(keyword)));
+    }
+
+    @Test
+    @DisplayName("Keywords and their categories are recorded once")
+    void testKeywordsAndCategories() {
+        Set<String> keys = SharpBasicKeywordIndex.keysOf("10 PRINT 1:PRINT 2\n20 GPRINT \"FF\"\n30 GOTO 10\n").keySet();
+        assertEquals(Set.of("PRINT", "GPRINT", "GOTO", categoryOf("PRINT"), categoryOf("GPRINT")), keys);
+        assertTrue(keys.contains(SharpBasicKeywordIndex.categoryKey(KeywordCategory.PC1500)));
+    }
+
+    @Test
+    @DisplayName("Abbreviations are recorded by their canonical name")
+    void testAbbreviations() {
+        assertTrue(SharpBasicKeywordIndex.keysOf("10 P.\"A\"\n").containsKey("PRINT"));
+    }
+
+    @Test
+    @DisplayName("Keywords in strings and comments are not recorded")
+    void testStringsAndComments() {
+        Set<String> keys = SharpBasicKeywordIndex.keysOf("10 A$=\"GPRINT\"\n// GPRINT\n").keySet();
+        assertFalse(keys.contains("GPRINT"));
+        assertFalse(keys.contains(categoryOf("GPRINT")));
+    }
+
+    @Test
+    @DisplayName("A PC-1600 keyword records the PC-1600 keywords of the whole file")
+    void testPc1600File() {
+        KeywordTrie defaults = KeywordTrie.forDialect(SharpBasicDialect.DEFAULT);
+        String keyword = SharpBasicDialect.PC1600.getRegistry().allKeywords().stream()
+                .filter(k -> k.category() == KeywordCategory.PC1600 && !defaults.contains(k.name()))
+                .findFirst().orElseThrow().name();
+        Set<String> keys = SharpBasicKeywordIndex.keysOf("10 PRINT 1\n20 " + keyword + "\n").keySet();
+        assertTrue(keys.contains("PRINT"));
+        assertTrue(keys.contains(keyword));
+        assertTrue(keys.contains(SharpBasicKeywordIndex.categoryKey(KeywordCategory.PC1600)));
+    }
+
+    @Test
+    @DisplayName("Empty file has no keys")
+    void testEmpty() {
+        assertTrue(SharpBasicKeywordIndex.keysOf("").isEmpty());
+    }
+}
@@ -0,0 +1,46 @@
+package ch.erzberger.sharpbasic.inspection;
+
+import ch.erzberger.sharpbasic.parser.SharpBasicParserDefinition;
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicJumpElement;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.ParsingTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SharpBasicUnresolvedJumpInspectionTest extends ParsingTestCase {
+    public SharpBasicUnresolvedJumpInspectionTest() {
+        super("", "bas", new SharpBasicParserDefinition());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "examples";
+    }
+
+    private List<String> problems(String text) {
+        SharpBasicFile file = (SharpBasicFile) createPsiFile("jumps.bas", text);
+        List<String> problems = new ArrayList<>();
+        for (SharpBasicJumpElement jump : PsiTreeUtil.findChildrenOfType(file, SharpBasicJumpElement.class)) {
+            problems.add(SharpBasicUnresolvedJumpInspection.findProblem(jump, file.getLineTable()));
+        }
+        return problems;
+    }
+
+    public void testMissingLines() {
+        assertEquals(Arrays.asList("Line 999 does not exist", null, "Line 999 does not exist", null),
+                problems("10 GOTO 999\n20 GOSUB  20\n30 IF A THEN 9 9 9\n40 GOTO20\n"));
+    }
+
+    public void testMissingLabels() {
+        assertEquals(Arrays.asList(null, "Label \"B\" does not exist"),
+                problems("10 \"A\" GOTO  \"A\"\n20 GOSUB \"B\"\n"));
+    }
+
+    public void testTargetsThatCannotBeChecked() {
+        // Computed targets and numbers that are not line numbers get a weak warning instead
+        assertEquals(Arrays.asList(null, null), problems("10 GOTO A*10\n20 GOTO 1.5\n"));
+    }
+}
@@ -0,0 +1,76 @@
+package ch.erzberger.sharpbasic.lexer;
+
+import ch.erzberger.sharpbasic.core.keyword.BasicKeyword;
+import ch.erzberger.sharpbasic.core.keyword.KeywordRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Keyword Trie Tests")
+class KeywordTrieTest {
+
+    private static final KeywordRegistry REGISTRY = KeywordRegistry.forPc1500();
+    private static final KeywordTrie TRIE = KeywordTrie.of(REGISTRY);
+
+    @Test
+    @DisplayName("Every keyword name and abbreviation of the registry is in the trie")
+    void testContainsRegistryKeywords() {
+        for (BasicKeyword keyword : REGISTRY.allKeywords()) {
+            if (keyword.name().matches("[A-Z0-9$#]+") && REGISTRY.isKeyword(keyword.name())) {
+                assertTrue(TRIE.contains(keyword.name()), keyword.name());
+            }
+            if (keyword.hasAbbreviation() && REGISTRY.isKeyword(keyword.abbreviation() + ".")) {
+                assertTrue(TRIE.contains(keyword.abbreviation() + "."), keyword.abbreviation() + ".");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Trie agrees with the registry on dotted abbreviations and non-keywords")
+    void testAgreesWithRegistry() {
+        for (String text : new String[]{"P.", "PR.", "PRI.", "PRIN.", "PRINT", "INKEY$", "SG", "P", "PRINTX", "A", "AB"}) {
+            assertEquals(REGISTRY.isKeyword(text), TRIE.contains(text), text);
+        }
+    }
+
+    @Test
+    @DisplayName("Longest match finds the longest keyword prefix")
+    void testLongestMatch() {
+        String text = "XGOSUBA";
+        assertEquals(5, TRIE.longestMatch(text, 1, text.length(), 2, -1, false));
+        // An excluded length falls back to a shorter keyword, if any
+        assertNotEquals(5, TRIE.longestMatch(text, 1, text.length(), 2, 5, false));
+        // The end offset limits the match
+        assertTrue(TRIE.longestMatch(text, 1, 5, 2, -1, false) < 4);
+    }
+
+    @Test
+    @DisplayName("Matching is case-sensitive unless case is ignored")
+    void testCaseSensitivity() {
+        String text = "print";
+        assertEquals(0, TRIE.longestMatch(text, 0, text.length(), 2, -1, false));
+        assertEquals(5, TRIE.longestMatch(text, 0, text.length(), 2, -1, true));
+    }
+
+    @Test
+    @DisplayName("Spellings of a keyword resolve to the id of its canonical name")
+    void testResolveToCanonicalId() {
+        int print = TRIE.idOfName("PRINT");
+        assertNotEquals(KeywordTrie.NO_KEYWORD, print);
+        assertEquals("PRINT", TRIE.nameOf(print));
+        for (String text : new String[]{"PRINT", "P.", "PRIN.", "P R I N T", "PR\tINT"}) {
+            assertEquals(print, TRIE.resolve(text, 0, text.length()), text);
+        }
+        assertEquals(TRIE.idOfName("INKEY$"), TRIE.resolve("INKEY$", 0, 6));
+    }
+
+    @Test
+    @DisplayName("Text that is not exactly one keyword does not resolve")
+    void testResolveNonKeyword() {
+        for (String text : new String[]{"PRINTX", "PRIN", "print", "", "AB"}) {
+            assertEquals(KeywordTrie.NO_KEYWORD, TRIE.resolve(text, 0, text.length()), text);
+        }
+        assertEquals(KeywordTrie.NO_KEYWORD, TRIE.idOfName("NOSUCHKEYWORD"));
+    }
+}
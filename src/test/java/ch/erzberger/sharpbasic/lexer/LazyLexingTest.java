@@ -0,0 +1,100 @@
+package ch.erzberger.sharpbasic.lexer;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Lazy Lexing Tests")
+class LazyLexingTest {
+
+    /**
+     * CharSequence that remembers the highest offset read, to check how far the lexer looked ahead.
+     */
+    private static final class TrackingSequence implements CharSequence {
+        private final String text;
+        int highestRead = -1;
+
+        TrackingSequence(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            highestRead = Math.max(highestRead, index);
+            return text.charAt(index);
+        }
+
+        @NotNull
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            highestRead = Math.max(highestRead, end - 1);
+            return text.subSequence(start, end);
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private static String program(int lines) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= lines; i++) {
+            sb.append(i * 10).append(" PRINT \"LINE ").append(i).append("\":GOTO ").append(i * 10 + 10).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    @DisplayName("start() only reads the first line of a large document")
+    void testFirstTokenReadsOnlyFirstLine() {
+        TrackingSequence text = new TrackingSequence(program(50_000));
+        PreprocessingSharpBasicLexer lexer = new PreprocessingSharpBasicLexer();
+        lexer.start(text, 0, text.length(), 0);
+
+        assertEquals(SharpBasicTypes.LINE_NUMBER, lexer.getTokenType());
+        assertTrue(text.highestRead < text.toString().indexOf('\n') + 1,
+                "Lexer read up to offset " + text.highestRead + " before the first token");
+    }
+
+    @Test
+    @DisplayName("Advancing reads the document one line at a time")
+    void testAdvanceReadsLineByLine() {
+        TrackingSequence text = new TrackingSequence(program(1_000));
+        PreprocessingSharpBasicLexer lexer = new PreprocessingSharpBasicLexer();
+        lexer.start(text, 0, text.length(), 0);
+
+        while (lexer.getTokenType() != null) {
+            int lineEnd = text.toString().indexOf('\n', lexer.getTokenStart());
+            assertTrue(text.highestRead <= lineEnd,
+                    "Lexer read past the end of the current line at offset " + lexer.getTokenStart());
+            lexer.advance();
+        }
+        assertEquals(text.length() - 1, text.highestRead);
+    }
+
+    @Test
+    @DisplayName("Trailing whitespace after the last line is covered by a whitespace token")
+    void testTrailingWhitespace() {
+        String text = "10 END\n   ";
+        PreprocessingSharpBasicLexer lexer = new PreprocessingSharpBasicLexer();
+        lexer.start(text, 0, text.length(), 0);
+
+        int end = 0;
+        while (lexer.getTokenType() != null) {
+            assertEquals(end, lexer.getTokenStart());
+            end = lexer.getTokenEnd();
+            lexer.advance();
+        }
+        assertEquals(text.length(), end);
+    }
+}
@@ -0,0 +1,188 @@
+package ch.erzberger.sharpbasic.lexer;
+
+import com.intellij.psi.tree.IElementType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that the lexer can be restarted from any token using the state it reported for that token,
+ * which is what the editor highlighter relies on for incremental re-lexing.
+ */
+@DisplayName("Lexer Restart Consistency Tests")
+class LexerRestartConsistencyTest {
+
+    static Stream<File> exampleFiles() {
+        File[] files = new File("examples").listFiles((dir, name) -> name.endsWith(".bas"));
+        assertNotNull(files, "examples directory not found");
+        Arrays.sort(files);
+        return Arrays.stream(files);
+    }
+
+    private static String read(File file) throws IOException {
+        return Files.readString(file.toPath(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static List<Token> lex(CharSequence text, int start, int state) {
+        PreprocessingSharpBasicLexer lexer = new PreprocessingSharpBasicLexer();
+        lexer.start(text, start, text.length(), state);
+        List<Token> tokens = new ArrayList<>();
+        while (lexer.getTokenType() != null) {
+            tokens.add(new Token(lexer.getTokenType(), lexer.getTokenStart(), lexer.getTokenEnd(), lexer.getState()));
+            lexer.advance();
+        }
+        return tokens;
+    }
+
+    private static boolean isLineStart(CharSequence text, int offset) {
+        return offset == 0 || text.charAt(offset - 1) == '\n' || text.charAt(offset - 1) == '\r';
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("exampleFiles")
+    @DisplayName("Tokens cover the whole file and every line starts in the initial state")
+    void testLineStartsAreInitialState(File file) throws IOException {
+        String text = read(file);
+        List<Token> tokens = lex(text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+
+        int expectedStart = 0;
+        for (Token token : tokens) {
+            assertEquals(expectedStart, token.start, "Gap before " + token);
+            if (isLineStart(text, token.start)) {
+                assertEquals(PreprocessingSharpBasicLexer.LINE_START_STATE, token.state,
+                        "Token at line start has non-initial state: " + token);
+            }
+            expectedStart = token.end;
+        }
+        assertEquals(text.length(), expectedStart, "Tokens should cover the whole file");
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("exampleFiles")
+    @DisplayName("Restarting at any token with its state reproduces the tokens up to the next line start")
+    void testRestartFromEveryToken(File file) throws IOException {
+        String text = read(file);
+        List<Token> full = lex(text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+
+        for (int i = 0; i < full.size(); i++) {
+            Token restartAt = full.get(i);
+            List<Token> relexed = lex(text, restartAt.start, restartAt.state);
+
+            for (int j = 0; j < relexed.size() && i + j < full.size(); j++) {
+                assertEquals(full.get(i + j), relexed.get(j),
+                        file.getName() + ": restart at " + restartAt + " diverged at token " + j);
+                // Once both streams are back at a line start the highlighter stops re-lexing
+                if (j > 0 && relexed.get(j).state == PreprocessingSharpBasicLexer.LINE_START_STATE) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("exampleFiles")
+    @DisplayName("Restarting at a line start reproduces the rest of the file")
+    void testRestartFromLineStartToEnd(File file) throws IOException {
+        String text = read(file);
+        List<Token> full = lex(text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+
+        // Restarting at every line would be quadratic; every tenth line start is enough
+        int lineStarts = 0;
+        for (int i = 0; i < full.size(); i++) {
+            Token restartAt = full.get(i);
+            if (restartAt.state != PreprocessingSharpBasicLexer.LINE_START_STATE || lineStarts++ % 10 != 0) {
+                continue;
+            }
+            List<Token> relexed = lex(text, restartAt.start, PreprocessingSharpBasicLexer.LINE_START_STATE);
+            assertEquals(full.subList(i, full.size()), relexed, file.getName() + ": restart at " + restartAt);
+        }
+    }
+
+    @Test
+    @DisplayName("Editing one line only changes the tokens of that line")
+    void testEditIsLocalToLine() {
+        String before = "10 PRINT \"A\"\n20 R E M spaced\n30 FORI=1TO9:NEXTI\n40 GOTO 10\n";
+        String after = before.replace("FORI=1TO9", "FORJ=1TO99");
+        List<Token> oldTokens = lex(before, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        List<Token> newTokens = lex(after, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+
+        int editedLineStart = after.indexOf("30");
+        int editedLineEnd = after.indexOf("40");
+        int delta = after.length() - before.length();
+
+        List<Token> oldOutside = new ArrayList<>();
+        for (Token token : oldTokens) {
+            if (token.end <= editedLineStart) {
+                oldOutside.add(token);
+            } else if (token.start >= editedLineEnd - delta) {
+                oldOutside.add(token.shift(delta));
+            }
+        }
+        List<Token> newOutside = new ArrayList<>();
+        for (Token token : newTokens) {
+            if (token.end <= editedLineStart || token.start >= editedLineEnd) {
+                newOutside.add(token);
+            }
+        }
+        assertEquals(oldOutside, newOutside);
+    }
+
+    @Test
+    @DisplayName("State inside a comment resumes the comment")
+    void testRestartInsideComment() {
+        String text = "10 REM hello world\n20 END";
+        List<Token> full = lex(text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        Token comment = full.stream().filter(t -> t.start > 0 && t.state
+                        == (PreprocessingSharpBasicLexer.MID_LINE | PreprocessingSharpBasicLexer.IN_COMMENT
+                        | PreprocessingSharpBasicLexer.RAW_TEXT))
+                .findFirst().orElseThrow();
+        assertEquals(" hello world", text.substring(comment.start, comment.end));
+    }
+
+    private static final class Token {
+        final IElementType type;
+        final int start;
+        final int end;
+        final int state;
+
+        Token(IElementType type, int start, int end, int state) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.state = state;
+        }
+
+        Token shift(int delta) {
+            return new Token(type, start + delta, end + delta, state);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Token)) return false;
+            Token other = (Token) o;
+            return type == other.type && start == other.start && end == other.end && state == other.state;
+        }
+
+        @Override
+        public int hashCode() {
+            return (type.hashCode() * 31 + start) * 31 + end;
+        }
+
+        @Override
+        public String toString() {
+            return type + "[" + start + "-" + end + ", state=" + state + "]";
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ch.erzberger.sharpbasic.lexer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Line Token Cache Tests")
+class LineTokenCacheTest {
+
+    private static String program(int lines) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= lines; i++) {
+            sb.append(i * 10).append(" PRINT \"LINE ").append(i).append("\":R E M note\n");
+        }
+        return sb.toString();
+    }
+
+    private static List<String> lex(LineTokenCache cache, CharSequence text, int start, int state) {
+        PreprocessingSharpBasicLexer lexer = new PreprocessingSharpBasicLexer(cache);
+        lexer.start(text, start, text.length(), state);
+        List<String> tokens = new ArrayList<>();
+        while (lexer.getTokenType() != null) {
+            tokens.add(lexer.getTokenType() + "[" + lexer.getTokenStart() + "-" + lexer.getTokenEnd()
+                    + ", state=" + lexer.getState() + "]");
+            lexer.advance();
+        }
+        return tokens;
+    }
+
+    @Test
+    @DisplayName("Second lexer on the same document replays every line from the cache")
+    void testSecondPassHitsCache() {
+        String text = program(5_000);
+        LineTokenCache cache = new LineTokenCache(LineTokenCache.DEFAULT_CAPACITY);
+
+        List<String> highlighter = lex(cache, text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        assertEquals(0, cache.getHits());
+        assertEquals(5_000, cache.getMisses());
+
+        List<String> parser = lex(cache, text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        assertEquals(highlighter, parser);
+        assertEquals(5_000, cache.getHits());
+        assertEquals(5_000, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Cached tokens are identical to freshly lexed tokens")
+    void testCachedTokensMatchUncached() {
+        String text = "10 PRINT \"A\"\r\n20 R E M spaced\n30 A$=\"X\":'comment\r40 FORI=1TO9:NEXTI\n   ";
+        List<String> uncached = lex(new LineTokenCache(0), text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        LineTokenCache cache = new LineTokenCache(16);
+        lex(cache, text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        assertEquals(uncached, lex(cache, text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE));
+    }
+
+    @Test
+    @DisplayName("Only the edited line misses after an edit")
+    void testEditMissesOnlyEditedLine() {
+        String before = program(100);
+        String after = before.replace("LINE 50\"", "LINE 50!\"");
+        LineTokenCache cache = new LineTokenCache(LineTokenCache.DEFAULT_CAPACITY);
+
+        lex(cache, before, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        long misses = cache.getMisses();
+        List<String> tokens = lex(cache, after, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        assertEquals(misses + 1, cache.getMisses());
+        assertEquals(lex(new LineTokenCache(0), after, 0, PreprocessingSharpBasicLexer.LINE_START_STATE), tokens);
+    }
+
+    @Test
+    @DisplayName("Restarting inside a line does not use the cache for that line")
+    void testRestartInsideLine() {
+        String text = "10 REM hello world\n20 END\n";
+        LineTokenCache cache = new LineTokenCache(16);
+        List<String> full = lex(cache, text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+
+        int commentStart = text.indexOf(" hello");
+        int state = PreprocessingSharpBasicLexer.MID_LINE | PreprocessingSharpBasicLexer.IN_COMMENT
+                | PreprocessingSharpBasicLexer.RAW_TEXT;
+        List<String> relexed = lex(cache, text, commentStart, state);
+        assertEquals(full.subList(full.size() - relexed.size(), full.size()), relexed);
+    }
+
+    @Test
+    @DisplayName("Cache is bounded by its capacity")
+    void testCapacity() {
+        LineTokenCache cache = new LineTokenCache(10);
+        lex(cache, program(100), 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        assertTrue(cache.size() <= 10, cache.toString());
+        assertTrue(cache.size() > 0, cache.toString());
+    }
+
+    @Test
+    @DisplayName("Lexers on several threads share the cache")
+    void testConcurrentLexers() throws Exception {
+        String text = program(2_000);
+        List<String> expected = lex(new LineTokenCache(0), text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE);
+        LineTokenCache cache = new LineTokenCache(LineTokenCache.DEFAULT_CAPACITY);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> lex(cache, text, 0, PreprocessingSharpBasicLexer.LINE_START_STATE)));
+            }
+            for (Future<List<String>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(threads * 2_000L, cache.getHits() + cache.getMisses());
+        assertEquals(2_000, cache.size());
+    }
+}
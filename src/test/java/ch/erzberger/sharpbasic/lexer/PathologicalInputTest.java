@@ -0,0 +1,160 @@
+package ch.erzberger.sharpbasic.lexer;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmarks the preprocessor on pathological lines. The preprocessor must read every source character
+ * a bounded number of times, so the number of reads is counted: unlike timings, that proves linear
+ * behaviour deterministically. Timings are logged for information only.
+ */
+@DisplayName("Pathological Input Benchmarks")
+class PathologicalInputTest {
+
+    /**
+     * Every character may be read at most twice (once more when peeking for an escaped quote or \r\n).
+     */
+    private static final int MAX_READS_PER_CHAR = 2;
+
+    private static final class CountingSequence implements CharSequence {
+        private final String text;
+        long reads;
+
+        CountingSequence(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            reads++;
+            return text.charAt(index);
+        }
+
+        @NotNull
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            reads += end - start;
+            return text.subSequence(start, end);
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private static String repeat(String s, int length) {
+        StringBuilder sb = new StringBuilder(length + s.length());
+        while (sb.length() < length) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    private static int lexCountingTokens(CountingSequence text) {
+        PreprocessingSharpBasicLexer lexer = new PreprocessingSharpBasicLexer();
+        lexer.start(text, 0, text.length(), 0);
+        int tokens = 0;
+        while (lexer.getTokenType() != null) {
+            tokens++;
+            lexer.advance();
+        }
+        return tokens;
+    }
+
+    /**
+     * Lexes the input generated for 10k and 40k characters and checks that reads grow linearly.
+     */
+    private static void assertLinear(String name, IntFunction<String> generator) {
+        long[] reads = new long[2];
+        int[] sizes = {10_000, 40_000};
+        for (int i = 0; i < sizes.length; i++) {
+            CountingSequence text = new CountingSequence(generator.apply(sizes[i]));
+            long start = System.nanoTime();
+            int tokens = lexCountingTokens(text);
+            long micros = (System.nanoTime() - start) / 1000;
+            reads[i] = text.reads;
+            System.out.println("[DEBUG_LOG] " + name + ": " + text.length() + " chars, " + tokens + " tokens, "
+                    + text.reads + " reads, " + micros + " us");
+            assertTrue(text.reads <= (long) MAX_READS_PER_CHAR * text.length(),
+                    name + ": " + text.reads + " reads for " + text.length() + " chars");
+        }
+        // Four times the input must not cost more than about four times the reads
+        assertTrue(reads[1] <= reads[0] * 5, name + ": reads grew from " + reads[0] + " to " + reads[1]);
+    }
+
+    @Test
+    @DisplayName("Line of many closed strings")
+    void testClosedStrings() {
+        assertLinear("closed strings", n -> "10 PRINT " + repeat("\"AB\";", n));
+    }
+
+    @Test
+    @DisplayName("Line of escaped quotes inside an unclosed quote comment")
+    void testEscapedQuotesInComment() {
+        assertLinear("escaped quotes", n -> "10 A=1:\"" + repeat("\"\"x", n));
+    }
+
+    @Test
+    @DisplayName("Line made only of quotes")
+    void testOnlyQuotes() {
+        assertLinear("only quotes", n -> repeat("\"", n) + "\n20 END");
+    }
+
+    @Test
+    @DisplayName("Many lines that each hold an unclosed quote comment")
+    void testManyQuoteComments() {
+        assertLinear("quote comments", n -> repeat("10 A=1:\"comment \"\" \n", n));
+    }
+
+    @Test
+    @DisplayName("Keyword with long runs of spaces between its letters")
+    void testLongSpacedKeyword() {
+        assertLinear("spaced PRINT", n -> {
+            String spaces = repeat(" ", n / 5);
+            return "10 P" + spaces + "R" + spaces + "I" + spaces + "N" + spaces + "T A";
+        });
+    }
+
+    @Test
+    @DisplayName("Spaced REM with long runs of spaces, followed by a long comment")
+    void testLongSpacedRem() {
+        assertLinear("spaced REM", n -> {
+            String spaces = repeat(" ", n / 4);
+            return "10 R" + spaces + "E" + spaces + "M" + repeat(" R E M \"", n / 2);
+        });
+    }
+
+    @Test
+    @DisplayName("Repeated R E fragments that never complete a REM")
+    void testIncompleteRemFragments() {
+        assertLinear("R E fragments", n -> "10 " + repeat("R  E  :", n));
+    }
+
+    @Test
+    @DisplayName("Spaced REM still turns the rest of a long line into a comment")
+    void testSpacedRemStillDetected() {
+        String text = "10 R    E    M " + repeat("\"A\" PRINT ", 10_000);
+        PreprocessingSharpBasicLexer lexer = new PreprocessingSharpBasicLexer();
+        lexer.start(text, 0, text.length(), 0);
+        lexer.advance();
+        assertEquals(SharpBasicTypes.KEYWORD, lexer.getTokenType());
+        lexer.advance();
+        IElementType comment = lexer.getTokenType();
+        assertEquals(SharpBasicTypes.COMMENT, comment);
+        assertEquals(text.length(), lexer.getTokenEnd());
+    }
+}
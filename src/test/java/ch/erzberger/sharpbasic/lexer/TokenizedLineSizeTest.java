@@ -0,0 +1,72 @@
+package ch.erzberger.sharpbasic.lexer;
+
+import ch.erzberger.sharpbasic.dialect.SharpBasicDialect;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tokenized Line Size Tests")
+class TokenizedLineSizeTest {
+
+    private static int size(String line) {
+        return TokenizedLineSize.of(line, SharpBasicDialect.DEFAULT);
+    }
+
+    @Test
+    @DisplayName("Keywords are two bytes whatever their spelling")
+    void testKeywords() {
+        assertEquals(3, size("10 PRINT A"));
+        assertEquals(3, size("10 P.A"));
+        assertEquals(3, size("10 P R I N T A\n"));
+        assertEquals(5, size("10 FOR I=1"));
+    }
+
+    @Test
+    @DisplayName("Blanks are dropped outside strings and comments")
+    void testBlanks() {
+        assertEquals(7, size("10 PRINT \"A B\""));
+        assertEquals(5, size("10 A = 1 0 0"));
+        assertEquals(11, size("10 REM hi there"));
+    }
+
+    @Test
+    @DisplayName("Blanks around strings are dropped, blanks in strings and comments are kept")
+    void testSpacedStrings() {
+        assertEquals(5, size("10 PRINT \"A\""));
+        assertEquals(5, size("10 PRINT   \"A\"\n"));
+        assertEquals(12, size("10 A$ = \"X\" : PRINT  \"Y\"  "));
+        assertEquals(7, size("10  \"LBL\"  END"));
+        assertEquals(10, size("10 A=1 : ' note"));
+    }
+
+    @Test
+    @DisplayName("Source-only comments and empty lines take no bytes")
+    void testSourceOnly() {
+        assertEquals(0, size("// note"));
+        assertEquals(0, size("# note"));
+        assertEquals(0, size("\n"));
+    }
+
+    @Test
+    @DisplayName("Line size example fits although its text is longer than the limit")
+    void testExample() throws IOException {
+        List<String> lines = Files.readAllLines(Path.of("examples/LineLengthTest.bas"), StandardCharsets.ISO_8859_1);
+        assertEquals(6, size(lines.get(0)));
+        assertTrue(lines.get(1).length() > TokenizedLineSize.MAX_BYTES);
+        assertEquals(78, size(lines.get(1)));
+    }
+
+    @Test
+    @DisplayName("Long strings exceed the limit")
+    void testTooLong() {
+        String line = "10 A$=\"" + "X".repeat(TokenizedLineSize.MAX_BYTES) + "\"";
+        assertEquals(TokenizedLineSize.MAX_BYTES + 5, size(line));
+    }
+}
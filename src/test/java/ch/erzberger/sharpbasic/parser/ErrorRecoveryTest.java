@@ -0,0 +1,100 @@
+package ch.erzberger.sharpbasic.parser;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiErrorElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.ParsingTestCase;
+
+/**
+ * Error recovery is per line: a broken line ends in a single skipped range and the next line
+ * parses as if the error were not there. The benchmarks log timings for information; the nested
+ * case has a generous bound that only exponential backtracking could exceed.
+ */
+public class ErrorRecoveryTest extends ParsingTestCase {
+    private static final String[] GARBAGE = {
+            ") ) )",
+            "10 PRINT )(",
+            "20 A=(1+",
+            "30 FOR =",
+            "40 X=SIN(",
+            "50 A$=LEFT$(,",
+            ": ) :",
+    };
+
+    public ErrorRecoveryTest() {
+        super("", "bas", new SharpBasicParserDefinition());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "examples";
+    }
+
+    private static ASTNode[] lines(PsiFile file) {
+        return file.getNode().getChildren(null);
+    }
+
+    private static boolean hasError(ASTNode line) {
+        return PsiTreeUtil.findChildOfType(line.getPsi(), PsiErrorElement.class) != null;
+    }
+
+    public void testErrorDoesNotSpillIntoNextLine() {
+        for (String garbage : GARBAGE) {
+            PsiFile file = createPsiFile("broken.bas", garbage + "\n100 GOTO 10\n110 END");
+            ASTNode[] lines = lines(file);
+            assertEquals(garbage, 3, lines.length);
+            for (ASTNode line : lines) {
+                assertEquals(garbage, SharpBasicTypes.LINE, line.getElementType());
+            }
+            assertTrue(garbage, hasError(lines[0]));
+            assertFalse(garbage, hasError(lines[1]));
+            assertFalse(garbage, hasError(lines[2]));
+        }
+    }
+
+    public void testGarbageLastLine() {
+        PsiFile file = createPsiFile("broken.bas", "10 PRINT 1\n) )");
+        ASTNode[] lines = lines(file);
+        assertEquals(2, lines.length);
+        assertFalse(hasError(lines[0]));
+        assertTrue(hasError(lines[1]));
+    }
+
+    public void testThousandsOfGarbageLines() {
+        int count = 10_000;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i % 2 == 0 ? GARBAGE[i / 2 % GARBAGE.length] : (i * 10) + " PRINT \"OK\";A").append('\n');
+        }
+
+        long start = System.nanoTime();
+        PsiFile file = createPsiFile("garbage.bas", sb.toString());
+        ASTNode[] lines = lines(file);
+        int broken = 0;
+        for (ASTNode line : lines) {
+            if (hasError(line)) broken++;
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("[DEBUG_LOG] " + count + " lines, " + broken + " broken: " + millis + " ms");
+
+        assertEquals(count, lines.length);
+        assertEquals(count / 2, broken);
+    }
+
+    public void testNestedBrokenCalls() {
+        int depth = 40;
+        String text = "10 A=" + "SIN(".repeat(depth) + "\n20 END\n";
+
+        long start = System.nanoTime();
+        PsiFile file = createPsiFile("nested.bas", text);
+        ASTNode[] lines = lines(file);
+        assertTrue(hasError(lines[0]));
+        assertFalse(hasError(lines[1]));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("[DEBUG_LOG] Nesting depth " + depth + ": " + millis + " ms");
+
+        assertTrue("Parsing nested calls took " + millis + " ms", millis < 5_000);
+    }
+}
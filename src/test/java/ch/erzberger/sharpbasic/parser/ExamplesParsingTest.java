@@ -1,18 +1,29 @@
 package ch.erzberger.sharpbasic.parser;
 
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.lang.ASTNode;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiErrorElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.testFramework.ParsingTestCase;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import org.junit.Test;
 
 public class ExamplesParsingTest extends ParsingTestCase {
+    private static final Set<IElementType> EXPRESSION_TYPES = Set.of(SharpBasicTypes.PRIMARY_EXPR,
+            SharpBasicTypes.UNARY_EXPR, SharpBasicTypes.POWER_EXPR, SharpBasicTypes.MULTIPLICATIVE_EXPR,
+            SharpBasicTypes.ADDITIVE_EXPR, SharpBasicTypes.COMPARISON_EXPR, SharpBasicTypes.LOGICAL_EXPR);
+
     public ExamplesParsingTest() {
         super("", "bas", new SharpBasicParserDefinition());
     }
@@ -54,4 +65,63 @@ public class ExamplesParsingTest extends ParsingTestCase {
             }
         }
     }
+
+    public void testExpressionsAreFlat() {
+        ASTNode root = createPsiFile("flat.bas", "10 A=1+2*3:B=-C:D=E\n").getNode();
+
+        // 1+2*3 is additive_expr(primary_expr + multiplicative_expr(primary_expr * primary_expr))
+        ASTNode sum = firstOfType(root, SharpBasicTypes.ADDITIVE_EXPR);
+        assertNotNull(sum);
+        assertEquals(List.of(SharpBasicTypes.PRIMARY_EXPR, SharpBasicTypes.PLUS, SharpBasicTypes.MULTIPLICATIVE_EXPR),
+                childTypes(sum));
+        assertEquals(List.of(SharpBasicTypes.MINUS, SharpBasicTypes.PRIMARY_EXPR),
+                childTypes(firstOfType(root, SharpBasicTypes.UNARY_EXPR)));
+        // A single operand is just its primary expression, without wrappers for the precedence levels
+        assertNull(firstOfType(root, SharpBasicTypes.EXPRESSION));
+        assertNull(firstOfType(root, SharpBasicTypes.POWER_EXPR));
+    }
+
+    public void testExamplesNodeCount() throws IOException {
+        File[] files = new File(getTestDataPath()).listFiles((dir, name) -> name.endsWith(".bas"));
+        if (files == null) return;
+
+        int expressions = 0;
+        int operands = 0;
+        for (File file : files) {
+            String content = Files.readString(file.toPath(), StandardCharsets.ISO_8859_1);
+            PsiFile psiFile = createPsiFile(file.getName(), content);
+            for (PsiElement element : PsiTreeUtil.findChildrenOfType(psiFile, PsiElement.class)) {
+                ASTNode node = element.getNode();
+                if (node.getFirstChildNode() == null) continue;
+                if (node.getElementType() == SharpBasicTypes.EXPRESSION) {
+                    fail("Single operand expression wrapper in " + file.getName() + ": " + node.getText());
+                }
+                if (EXPRESSION_TYPES.contains(node.getElementType())) expressions++;
+                if (node.getElementType() == SharpBasicTypes.PRIMARY_EXPR) operands++;
+            }
+        }
+        // Each operand is one primary_expr, with at most one unary_expr around it and one binary
+        // operator node joining it to the operand before. With a node per precedence level it was
+        // at least four (unary, power, multiplicative and additive) plus the levels above.
+        assertTrue(operands > 0);
+        assertTrue("Expression nodes: " + expressions + ", operands: " + operands,
+                expressions <= 3 * operands);
+    }
+
+    private static ASTNode firstOfType(ASTNode root, IElementType type) {
+        for (ASTNode child = root.getFirstChildNode(); child != null; child = child.getTreeNext()) {
+            if (child.getElementType() == type) return child;
+            ASTNode found = firstOfType(child, type);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    private static List<IElementType> childTypes(ASTNode node) {
+        List<IElementType> types = new ArrayList<>();
+        for (ASTNode child = node.getFirstChildNode(); child != null; child = child.getTreeNext()) {
+            if (child.getElementType() != TokenType.WHITE_SPACE) types.add(child.getElementType());
+        }
+        return types;
+    }
 }
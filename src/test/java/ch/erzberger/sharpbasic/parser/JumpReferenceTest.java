@@ -0,0 +1,134 @@
+package ch.erzberger.sharpbasic.parser;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicFile;
+import ch.erzberger.sharpbasic.psi.SharpBasicJumpElement;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineDeclaration;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineTable;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.ParsingTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JumpReferenceTest extends ParsingTestCase {
+    private static final String PROGRAM = """
+            10 "START" PRINT "A"
+            20 GOSUB 100
+            30 IF A=1 THEN 10
+            40 GOTO "START"
+            50 GOTO A*10
+            60 GOTO 999
+            100 RETURN
+            100 END
+            """;
+
+    public JumpReferenceTest() {
+        super("", "bas", new SharpBasicParserDefinition());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "examples";
+    }
+
+    private SharpBasicFile file() {
+        return (SharpBasicFile) createPsiFile("jumps.bas", PROGRAM);
+    }
+
+    private static List<SharpBasicJumpElement> jumps(SharpBasicFile file) {
+        return new ArrayList<>(PsiTreeUtil.findChildrenOfType(file, SharpBasicJumpElement.class));
+    }
+
+    private static String resolvedText(SharpBasicJumpElement jump) {
+        PsiReference reference = jump.getReference();
+        if (reference == null) return null;
+        SharpBasicLineDeclaration line = (SharpBasicLineDeclaration) reference.resolve();
+        return line != null ? line.getText() : null;
+    }
+
+    public void testResolve() {
+        List<SharpBasicJumpElement> jumps = jumps(file());
+        assertEquals(5, jumps.size());
+        // A duplicate line number resolves to the first line, as on the device
+        assertEquals("100 RETURN", resolvedText(jumps.get(0)));
+        assertEquals("10 \"START\" PRINT \"A\"", resolvedText(jumps.get(1)));
+        assertEquals("10 \"START\" PRINT \"A\"", resolvedText(jumps.get(2)));
+        // Computed targets have no reference, missing lines do not resolve
+        assertNull(jumps.get(3).getReference());
+        assertNotNull(jumps.get(4).getReference());
+        assertNull(resolvedText(jumps.get(4)));
+    }
+
+    public void testReferenceRange() {
+        for (SharpBasicJumpElement jump : jumps(file())) {
+            PsiReference reference = jump.getReference();
+            if (reference == null) continue;
+            String target = reference.getCanonicalText();
+            assertTrue(target, target.matches("[0-9]+|\"START\""));
+        }
+    }
+
+    public void testSpacedTargets() {
+        String text = "  10 \"START\" PRINT 1\n20 GOTO   10\n30 GOSUB  \"START\"\n40 GOTO 1 0\n";
+        SharpBasicFile file = (SharpBasicFile) createPsiFile("spaced.bas", text);
+        SharpBasicLineDeclaration first = file.getLineTable().findLine(10);
+        assertNotNull(first);
+        assertEquals(text.indexOf("10"), first.getTextOffset());
+
+        List<String> targets = new ArrayList<>();
+        for (SharpBasicJumpElement jump : jumps(file)) {
+            PsiReference reference = jump.getReference();
+            assertNotNull(jump.getText(), reference);
+            assertSame(first, reference.resolve());
+            targets.add(reference.getCanonicalText());
+        }
+        assertEquals(List.of("10", "\"START\"", "1 0"), targets);
+    }
+
+    public void testJumpsTo() {
+        SharpBasicFile file = file();
+        SharpBasicLineDeclaration first = file.getLineTable().findLine(10);
+        assertNotNull(first);
+        assertSame(first, file.getLineTable().findLabel("START"));
+
+        List<String> texts = new ArrayList<>();
+        for (SharpBasicJumpElement jump : file.getJumpTable().findJumpsTo(first)) {
+            // The blank in front of a statement is part of its first token
+            texts.add(jump.getText().trim());
+        }
+        assertEquals(List.of("IF A=1 THEN 10", "GOTO \"START\""), texts);
+        assertEmpty(file.getJumpTable().findJumpsTo(file.getLineDeclarations().get(2)));
+    }
+
+    public void testComputedTarget() {
+        List<SharpBasicJumpElement> jumps = jumps(file());
+        assertEquals("A*10", jumps.get(3).getComputedTarget().getText().trim());
+        for (int i : new int[]{0, 1, 2, 4}) {
+            assertNull(jumps.get(i).getComputedTarget());
+        }
+
+        SharpBasicFile file = (SharpBasicFile) createPsiFile("if.bas", "10 IF A THEN B*10\n20 IF A THEN PRINT B\n");
+        List<SharpBasicJumpElement> ifs = jumps(file);
+        assertEquals("B*10", ifs.get(0).getComputedTarget().getText().trim());
+        assertNull(ifs.get(1).getComputedTarget());
+    }
+
+    public void testLineNumbersAreSorted() {
+        SharpBasicFile file = (SharpBasicFile) createPsiFile("unsorted.bas", "30 END\n10 PRINT 1\n20 A=1\n10 PRINT 2\n");
+        SharpBasicLineTable lines = file.getLineTable();
+        for (int number : new int[]{10, 20, 30}) {
+            assertTrue(lines.containsLine(number));
+        }
+        assertFalse(lines.containsLine(0));
+        assertFalse(lines.containsLine(15));
+        assertFalse(lines.containsLine(40));
+        assertEquals("10 PRINT 1", lines.findLine(10).getText());
+    }
+
+    public void testTablesAreCached() {
+        SharpBasicFile file = file();
+        assertSame(file.getLineTable(), file.getLineTable());
+        assertSame(file.getJumpTable(), file.getJumpTable());
+    }
+}
@@ -0,0 +1,61 @@
+package ch.erzberger.sharpbasic.parser;
+
+import ch.erzberger.sharpbasic.SharpBasicLanguage;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiErrorElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.impl.source.tree.LazyParseableElement;
+import com.intellij.psi.tree.IReparseableElementType;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.ParsingTestCase;
+
+public class LineReparseTest extends ParsingTestCase {
+    public LineReparseTest() {
+        super("", "bas", new SharpBasicParserDefinition());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "examples";
+    }
+
+    public void testLinesAreParsedLazily() {
+        String text = "10 PRINT \"A\"\n20 GOTO 10\n// note\n\n30 END";
+        PsiFile file = createPsiFile("lazy.bas", text);
+
+        ASTNode[] lines = file.getNode().getChildren(null);
+        assertEquals(5, lines.length);
+        for (ASTNode line : lines) {
+            assertEquals(SharpBasicTypes.LINE, line.getElementType());
+            assertInstanceOf(line, LazyParseableElement.class);
+            assertFalse(((LazyParseableElement) line).isParsed());
+        }
+
+        ASTNode first = lines[0];
+        ASTNode body = first.getFirstChildNode();
+        assertEquals(SharpBasicTypes.LINE_BODY, body.getElementType());
+        assertEquals(SharpBasicTypes.LINE_NUMBER, body.getFirstChildNode().getElementType());
+        assertTrue(((LazyParseableElement) first).isParsed());
+        assertFalse(((LazyParseableElement) lines[1]).isParsed());
+
+        assertEquals(text, file.getText());
+        assertEmpty(PsiTreeUtil.findChildrenOfType(file, PsiErrorElement.class));
+    }
+
+    public void testReparseMatchesFullParse() {
+        PsiFile file = createPsiFile("reparse.bas", "10 FOR I=1 TO 9:PRINT I:NEXT I\n20 IF A<>5 THEN 10\n30 END\n");
+        ensureCorrectReparse(file);
+    }
+
+    public void testOnlySingleLinesAreReparseable() {
+        IReparseableElementType line = (IReparseableElementType) SharpBasicTypes.LINE;
+        assertTrue(line.isParsable(null, "10 PRINT A\n", SharpBasicLanguage.INSTANCE, getProject()));
+        assertTrue(line.isParsable(null, "\n", SharpBasicLanguage.INSTANCE, getProject()));
+
+        // Edits that split or join lines fall back to a full reparse
+        assertFalse(line.isParsable(null, "10 PRINT A\n20 END\n", SharpBasicLanguage.INSTANCE, getProject()));
+        assertFalse(line.isParsable(null, "10 PRINT A", SharpBasicLanguage.INSTANCE, getProject()));
+        assertFalse(line.isParsable(null, "", SharpBasicLanguage.INSTANCE, getProject()));
+    }
+}
@@ -0,0 +1,99 @@
+package ch.erzberger.sharpbasic.parser;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicGotoStmt;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineNumberOwner;
+import ch.erzberger.sharpbasic.psi.SharpBasicStatementKind;
+import ch.erzberger.sharpbasic.psi.stubs.SharpBasicLabelIndex;
+import ch.erzberger.sharpbasic.psi.stubs.SharpBasicLineBodyElementType;
+import ch.erzberger.sharpbasic.psi.stubs.SharpBasicLineDeclarationStub;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.stubs.DefaultStubBuilder;
+import com.intellij.psi.stubs.IndexSink;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.ParsingTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+public class LineStubTest extends ParsingTestCase {
+    public LineStubTest() {
+        super("", "bas", new SharpBasicParserDefinition());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "examples";
+    }
+
+    private List<SharpBasicLineDeclarationStub> stubs(String text) {
+        PsiFile file = createPsiFile("stubs.bas", text);
+        StubElement<?> root = new DefaultStubBuilder().buildStubTree(file);
+        return root.getChildrenStubs().stream()
+                .map(SharpBasicLineDeclarationStub.class::cast)
+                .toList();
+    }
+
+    public void testLineStubs() {
+        List<SharpBasicLineDeclarationStub> stubs = stubs("""
+                10 "A" PRINT "X":GOTO 100
+                20 FOR I=1 TO 9:NEXT I
+
+                // note
+                30 IF A THEN GOSUB 200
+                "B"
+                """);
+
+        // The empty line has no body and therefore no stub
+        assertEquals(5, stubs.size());
+
+        assertEquals(10, stubs.get(0).getLineNumber());
+        assertEquals("A", stubs.get(0).getLabel());
+        assertEquals(EnumSet.of(SharpBasicStatementKind.PRINT, SharpBasicStatementKind.GOTO),
+                stubs.get(0).getStatementKinds());
+
+        assertEquals(20, stubs.get(1).getLineNumber());
+        assertNull(stubs.get(1).getLabel());
+        assertEquals(EnumSet.of(SharpBasicStatementKind.FOR, SharpBasicStatementKind.NEXT),
+                stubs.get(1).getStatementKinds());
+
+        assertEquals(SharpBasicLineNumberOwner.NO_LINE_NUMBER, stubs.get(2).getLineNumber());
+        assertEmpty(stubs.get(2).getStatementKinds());
+
+        // Statements nested in an IF are not top-level statements
+        assertEquals(EnumSet.of(SharpBasicStatementKind.IF), stubs.get(3).getStatementKinds());
+
+        assertEquals(SharpBasicLineNumberOwner.NO_LINE_NUMBER, stubs.get(4).getLineNumber());
+        assertEquals("B", stubs.get(4).getLabel());
+    }
+
+    public void testStubsInLineOrder() {
+        String text = "10 PRINT \"A\"\n20 GOTO 10\n30 END\n";
+        assertEquals(List.of(10, 20, 30),
+                stubs(text).stream().map(SharpBasicLineDeclarationStub::getLineNumber).toList());
+    }
+
+    public void testSpacedLabel() {
+        String text = "10  \"A B\"  PRINT 1\n20 GOTO  \"A B\"\n";
+        SharpBasicLineDeclarationStub stub = stubs(text).get(0);
+        assertEquals("A B", stub.getLabel());
+
+        // The key stored in the label index is the label a jump looks up
+        List<String> labels = new ArrayList<>();
+        ((SharpBasicLineBodyElementType) stub.getStubType()).indexStub(stub, new IndexSink() {
+            @Override
+            public <Psi extends PsiElement, K> void occurrence(@NotNull StubIndexKey<K, Psi> indexKey, @NotNull K value) {
+                if (indexKey == SharpBasicLabelIndex.KEY) {
+                    labels.add((String) value);
+                }
+            }
+        });
+        SharpBasicGotoStmt jump = PsiTreeUtil.findChildOfType(createPsiFile("jump.bas", text), SharpBasicGotoStmt.class);
+        assertNotNull(jump);
+        assertEquals(List.of(jump.getJumpLabel()), labels);
+    }
+}
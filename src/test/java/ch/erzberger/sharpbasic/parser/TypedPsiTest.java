@@ -0,0 +1,92 @@
+package ch.erzberger.sharpbasic.parser;
+
+import ch.erzberger.sharpbasic.psi.SharpBasicGosubStmt;
+import ch.erzberger.sharpbasic.psi.SharpBasicGotoStmt;
+import ch.erzberger.sharpbasic.psi.SharpBasicIfStmt;
+import ch.erzberger.sharpbasic.psi.SharpBasicJumpElement;
+import ch.erzberger.sharpbasic.psi.SharpBasicLine;
+import ch.erzberger.sharpbasic.psi.SharpBasicLineNumberOwner;
+import ch.erzberger.sharpbasic.psi.impl.SharpBasicPsiImplUtil;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.ParsingTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TypedPsiTest extends ParsingTestCase {
+    public TypedPsiTest() {
+        super("", "bas", new SharpBasicParserDefinition());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "examples";
+    }
+
+    private static int[] lineNumbers(PsiFile file) {
+        return PsiTreeUtil.getChildrenOfTypeAsList(file, SharpBasicLine.class).stream()
+                .mapToInt(SharpBasicLineNumberOwner::getLineNumber).toArray();
+    }
+
+    private static List<Integer> jumpTargets(PsiFile file, Class<? extends SharpBasicJumpElement> type) {
+        List<Integer> targets = new ArrayList<>();
+        for (SharpBasicJumpElement jump : PsiTreeUtil.findChildrenOfType(file, type)) {
+            targets.add(jump.getJumpTarget());
+        }
+        return targets;
+    }
+
+    public void testLineNumbers() {
+        PsiFile file = createPsiFile("lines.bas", "10 PRINT 1\n// note\n\n65279 END\n  20 PRINT 2\n3 0 PRINT 3\n");
+        int none = SharpBasicLineNumberOwner.NO_LINE_NUMBER;
+        assertOrderedEquals(lineNumbers(file), 10, none, none, 65279, 20, 30);
+    }
+
+    public void testJumpTargets() {
+        PsiFile file = createPsiFile("jumps.bas", """
+                10 GOTO 100
+                20 GOSUB 200:GOSUB "UHR"
+                30 GOTO A+1
+                40 IF A=1 THEN 300
+                50 IF A=2 GOTO 400
+                60 IF A=3 THEN PRINT A
+                70 GOTO500:GOTO 1 0 0
+                """);
+        int none = SharpBasicJumpElement.NO_TARGET;
+        assertOrderedEquals(jumpTargets(file, SharpBasicGotoStmt.class), 100, none, 500, 100);
+        assertOrderedEquals(jumpTargets(file, SharpBasicGosubStmt.class), 200, none);
+        assertOrderedEquals(jumpTargets(file, SharpBasicIfStmt.class), 300, 400, none);
+    }
+
+    public void testCacheIsResetOnChange() {
+        PsiFile file = createPsiFile("change.bas", "10 GOTO 100\n");
+        SharpBasicGotoStmt jump = PsiTreeUtil.findChildOfType(file, SharpBasicGotoStmt.class);
+        assertNotNull(jump);
+        assertEquals(100, jump.getJumpTarget());
+
+        PsiElement target = jump.getLastChild();
+        PsiFile replacement = createPsiFile("replacement.bas", "10 GOTO 250\n");
+        SharpBasicGotoStmt other = PsiTreeUtil.findChildOfType(replacement, SharpBasicGotoStmt.class);
+        assertNotNull(other);
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            target.replace(other.getLastChild());
+        });
+        assertEquals(250, jump.getJumpTarget());
+    }
+
+    public void testParseLineNumber() {
+        assertEquals(0, SharpBasicPsiImplUtil.parseLineNumber("0"));
+        assertEquals(12345, SharpBasicPsiImplUtil.parseLineNumber("12345"));
+        // Blanks the lexer removed are part of the token text
+        assertEquals(100, SharpBasicPsiImplUtil.parseLineNumber(" 100"));
+        assertEquals(100, SharpBasicPsiImplUtil.parseLineNumber("\t1 0 0  "));
+        assertEquals(SharpBasicLineNumberOwner.NO_LINE_NUMBER, SharpBasicPsiImplUtil.parseLineNumber("  "));
+        assertEquals(SharpBasicLineNumberOwner.NO_LINE_NUMBER, SharpBasicPsiImplUtil.parseLineNumber(""));
+        assertEquals(SharpBasicLineNumberOwner.NO_LINE_NUMBER, SharpBasicPsiImplUtil.parseLineNumber("1.5"));
+        assertEquals(SharpBasicLineNumberOwner.NO_LINE_NUMBER, SharpBasicPsiImplUtil.parseLineNumber("&FF"));
+        assertEquals(SharpBasicLineNumberOwner.NO_LINE_NUMBER, SharpBasicPsiImplUtil.parseLineNumber("99999999999"));
+    }
+}
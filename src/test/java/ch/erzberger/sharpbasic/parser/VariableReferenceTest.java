@@ -0,0 +1,62 @@
+package ch.erzberger.sharpbasic.parser;
+
+import ch.erzberger.sharpbasic.SharpBasicLanguage;
+import ch.erzberger.sharpbasic.psi.SharpBasicIdentifier;
+import com.intellij.lang.LanguageASTFactory;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.ParsingTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class VariableReferenceTest extends ParsingTestCase {
+    public VariableReferenceTest() {
+        super("", "bas", new SharpBasicParserDefinition());
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        addExplicitExtension(LanguageASTFactory.INSTANCE, SharpBasicLanguage.INSTANCE, new SharpBasicASTFactory());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "examples";
+    }
+
+    public void testSameVariable() {
+        PsiFile file = createPsiFile("vars.bas", "10 ABC$=\"X\":AB$=\"Y\"\n20 A=1:PRINT ABC$;A\n");
+        List<SharpBasicIdentifier> identifiers =
+                new ArrayList<>(PsiTreeUtil.collectElementsOfType(file, SharpBasicIdentifier.class));
+        assertEquals(4, identifiers.size());
+
+        SharpBasicIdentifier first = identifiers.get(0);
+        assertEquals("ABC$", first.getName());
+        assertEquals("AB$", first.getVariableName());
+        assertTrue(identifiers.get(1).getReference().isReferenceTo(first));
+        assertTrue(identifiers.get(3).getReference().isReferenceTo(identifiers.get(2)));
+        assertFalse(identifiers.get(2).getReference().isReferenceTo(first));
+    }
+
+    public void testSpacedOccurrences() {
+        PsiFile file = createPsiFile("spaced.bas", "10 A=1\n20 PRINT B+A\n30 PRINT  A\n40 PRINT AB\n");
+        List<SharpBasicIdentifier> identifiers =
+                new ArrayList<>(PsiTreeUtil.collectElementsOfType(file, SharpBasicIdentifier.class));
+        assertEquals(5, identifiers.size());
+
+        SharpBasicIdentifier first = identifiers.get(0);
+        for (int i : new int[]{0, 2, 3}) {
+            SharpBasicIdentifier identifier = identifiers.get(i);
+            assertEquals("A", identifier.getName());
+            assertEquals("A", identifier.getVariableName());
+            assertTrue(identifier.getReference().isReferenceTo(first));
+            assertEquals("A", identifier.getReference().getCanonicalText());
+        }
+        assertEquals("10 A=1\n20 PRINT B+".length(), identifiers.get(2).getTextOffset());
+        assertEquals("10 A=1\n20 PRINT B+A\n30 PRINT  ".length(), identifiers.get(3).getTextOffset());
+        assertEquals("AB", identifiers.get(4).getName());
+        assertFalse(identifiers.get(4).getReference().isReferenceTo(first));
+    }
+}
@@ -0,0 +1,90 @@
+package ch.erzberger.sharpbasic.syntax;
+
+import ch.erzberger.sharpbasic.lexer.SharpBasicLexerAdapter;
+import ch.erzberger.sharpbasic.psi.SharpBasicTypes;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.psi.tree.IElementType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Syntax Highlighter Tests")
+class SharpBasicSyntaxHighlighterTest {
+
+    private final SharpBasicSyntaxHighlighter highlighter = new SharpBasicSyntaxHighlighter();
+
+    private List<IElementType> highlightingTypes(String text) {
+        SharpBasicHighlightingLexer lexer = new SharpBasicHighlightingLexer();
+        lexer.start(text, 0, text.length(), 0);
+        List<IElementType> types = new ArrayList<>();
+        while (lexer.getTokenType() != null) {
+            types.add(lexer.getTokenType());
+            lexer.advance();
+        }
+        return types;
+    }
+
+    private void assertHighlight(TextAttributesKey expected, IElementType tokenType) {
+        assertArrayEquals(new TextAttributesKey[]{expected}, highlighter.getTokenHighlights(tokenType),
+                tokenType.toString());
+    }
+
+    @Test
+    @DisplayName("Token types whose names contain other token names get their own colour")
+    void testOverlappingNames() {
+        assertHighlight(SharpBasicSyntaxHighlighter.LINE_NUMBER, SharpBasicTypes.LINE_NUMBER);
+        assertHighlight(SharpBasicSyntaxHighlighter.NUMBER, SharpBasicTypes.NUMBER);
+        assertHighlight(SharpBasicSyntaxHighlighter.OPERATOR, SharpBasicTypes.NE);
+        assertHighlight(SharpBasicSyntaxHighlighter.OPERATOR, SharpBasicTypes.LT);
+        assertHighlight(SharpBasicSyntaxHighlighter.COMMENT, SharpBasicTypes.EXTRA_COMMENT);
+        assertEquals(0, highlighter.getTokenHighlights(SharpBasicTypes.LINE_TERMINATOR).length);
+        assertEquals(0, highlighter.getTokenHighlights(null).length);
+    }
+
+    @Test
+    @DisplayName("Dotted abbreviations are highlighted separately from full keywords")
+    void testAbbreviation() {
+        List<IElementType> types = highlightingTypes("10 P.A:PRINT A");
+        assertEquals(SharpBasicHighlightingLexer.KEYWORD_ABBREVIATION, types.get(1));
+        assertEquals(SharpBasicTypes.KEYWORD, types.get(4));
+        assertHighlight(SharpBasicSyntaxHighlighter.KEYWORD_ABBREVIATION, types.get(1));
+    }
+
+    @Test
+    @DisplayName("An abbreviation followed by blanks at the end of the file")
+    void testAbbreviationBeforeTrailingBlanks() {
+        List<IElementType> types = highlightingTypes("10 A=1:P.  ");
+        assertEquals(SharpBasicHighlightingLexer.KEYWORD_ABBREVIATION, types.get(5));
+        assertEquals(SharpBasicTypes.KEYWORD, highlightingTypes("10 END  ").get(1));
+    }
+
+    @Test
+    @DisplayName("CE-150 keywords are highlighted separately from PC-1500 keywords")
+    void testExtensionKeyword() {
+        List<IElementType> types = highlightingTypes("10 GPRINT A");
+        assertEquals(SharpBasicHighlightingLexer.KEYWORD_CE150, types.get(1));
+        assertHighlight(SharpBasicSyntaxHighlighter.KEYWORD_CE150, types.get(1));
+    }
+
+    @Test
+    @DisplayName("Highlighting lexer keeps the states of the plain lexer")
+    void testStatesUnchanged() {
+        String text = "10 GPRINT A:P. \"X\"\n20 REM HI\n";
+        SharpBasicHighlightingLexer highlighting = new SharpBasicHighlightingLexer();
+        SharpBasicLexerAdapter plain = new SharpBasicLexerAdapter();
+        highlighting.start(text, 0, text.length(), 0);
+        plain.start(text, 0, text.length(), 0);
+        while (plain.getTokenType() != null) {
+            assertEquals(plain.getTokenStart(), highlighting.getTokenStart());
+            assertEquals(plain.getTokenEnd(), highlighting.getTokenEnd());
+            assertEquals(plain.getState(), highlighting.getState());
+            plain.advance();
+            highlighting.advance();
+        }
+        assertNull(highlighting.getTokenType());
+    }
+}